@@ -0,0 +1,32 @@
+#!/bin/bash
+# Сравнение запуска JVM и native: время до readiness и RSS после прогрева.
+# Нужны запущенные PostgreSQL, Kafka и Eureka (docker-compose.yml).
+#   ./gradlew :blockly-executor:bootJar
+#   ./gradlew :blockly-executor:nativeCompile -Pnative
+#   blockly-executor/scripts/compare-startup.sh
+set -e
+cd "$(dirname "$0")/.."
+PORT=${SERVER_PORT:-8085}
+RUNS=${RUNS:-3}
+
+measure() {
+    local name=$1; shift
+    for i in $(seq "$RUNS"); do
+        local start=$(date +%s%N)
+        SERVER_PORT=$PORT SPRING_LIQUIBASE_ENABLED=false "$@" > "build/startup-$name.log" 2>&1 &
+        local pid=$!
+        until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+            if ! kill -0 $pid 2> /dev/null; then
+                echo "$name: process exited, see build/startup-$name.log"; return 1
+            fi
+            sleep 0.05
+        done
+        local ready_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+        local rss_kb=$(ps -o rss= -p $pid | tr -d ' ')
+        echo "$name run $i: ready in ${ready_ms} ms, RSS $(( rss_kb / 1024 )) MB"
+        kill $pid; wait $pid 2> /dev/null || true
+    done
+}
+
+measure jvm java -jar build/libs/blockly-executor-0.0.1-SNAPSHOT.jar
+measure native env SPRING_PROFILES_ACTIVE=native build/native/nativeCompile/blockly-executor
@@ -0,0 +1,68 @@
+package com.example.blockly_executor_service.benchmark;
+
+import com.example.blockly_executor_service.dao.CompactRow;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память на результат DAO из rows строк по columns колонок: LinkedCaseInsensitiveMap на строку
+ * (как у queryForList) против CompactRow. Значения одни и те же объекты, поэтому разница
+ * в gc.alloc.rate.norm — накладные расходы представления строки.
+ * ./gradlew :blockly-executor:jmh -Pjmh.includes=CompactRowBenchmark "-Pjmh.args=-prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRowBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"5", "20"})
+    public int columns;
+
+    private String[] names;
+    private Object[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = new String[columns];
+        values = new Object[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = "column_" + i;
+            values[i] = "value " + i;
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> caseInsensitiveMap() {
+        List<Map<String, Object>> result = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Map<String, Object> row = new LinkedCaseInsensitiveMap<>(columns);
+            for (int i = 0; i < columns; i++) {
+                row.put(names[i], values[i]);
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> compactRow() {
+        // Как в CompactRowMapper: индекс колонок один на запрос
+        CompactRow.Columns shared = new CompactRow.Columns(names);
+        List<Map<String, Object>> result = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            result.add(new CompactRow(shared, values.clone()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.blockly_executor_service.benchmark;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Source;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время холодного старта: создание Engine и первые прогоны корпуса прогрева
+ * (resources/warmup) без кеша и с auxiliary engine cache (engine.CacheLoad).
+ * Каждый fork — отдельный холодный JVM, поэтому измеряется одна итерация на fork.
+ *
+ * Режим load требует Truffle Enterprise (Oracle GraalVM):
+ * ./gradlew :blockly-executor:jmh -PtruffleEnterpriseJar=... -Pjmh.includes=EngineCacheStartupBenchmark
+ * На community-рантайме режим load завершается ошибкой в setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class EngineCacheStartupBenchmark {
+
+    private static final int CACHE_TRAINING_ROUNDS = 500;
+
+    @Param({"none", "load"})
+    public String cache;
+
+    /** Сколько раз прогнать корпус после старта: 1 — первый запрос, больше — выход на steady state */
+    @Param({"1", "50"})
+    public int rounds;
+
+    private List<Source> corpus;
+    private Path cacheFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = loadCorpus();
+        if ("load".equals(cache)) {
+            cacheFile = Files.createTempFile("js-engine", ".img");
+            Files.delete(cacheFile);
+            try (Engine engine = newEngine("engine.CacheStore")) {
+                runCorpus(engine, CACHE_TRAINING_ROUNDS);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Engine cache requires Truffle Enterprise (-PtruffleEnterpriseJar): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (cacheFile != null) {
+            Files.deleteIfExists(cacheFile);
+        }
+    }
+
+    @Benchmark
+    public int startAndRunCorpus() {
+        try (Engine engine = newEngine("load".equals(cache) ? "engine.CacheLoad" : null)) {
+            return runCorpus(engine, rounds);
+        }
+    }
+
+    private Engine newEngine(String cacheOption) {
+        Engine.Builder builder = Engine.newBuilder("js").option("engine.WarnInterpreterOnly", "false");
+        if (cacheOption != null) {
+            builder.option(cacheOption, cacheFile.toString());
+        }
+        return builder.build();
+    }
+
+    private int runCorpus(Engine engine, int times) {
+        int checksum = 0;
+        try (Context context = Context.newBuilder("js")
+                .engine(engine)
+                .allowHostAccess(HostAccess.ALL)
+                .allowHostClassLookup(className -> false)
+                .build()) {
+            context.getBindings("js").putMember("DB", new StubDb());
+            context.getBindings("js").putMember("category", "electronics");
+            context.getBindings("js").putMember("limit", 10);
+            for (int i = 0; i < times; i++) {
+                for (Source source : corpus) {
+                    checksum += context.eval(source).hashCode();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static List<Source> loadCorpus() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:warmup/*.js");
+        List<Source> sources = new ArrayList<>(resources.length);
+        for (Resource resource : resources) {
+            sources.add(Source.newBuilder("js", resource.getContentAsString(StandardCharsets.UTF_8), resource.getFilename())
+                    .cached(true)
+                    .buildLiteral());
+        }
+        return sources;
+    }
+
+    /**
+     * DB без PostgreSQL: те же методы, что у DatabaseAccessor/TenantAwareDao, на фиксированных строках.
+     */
+    public static class StubDb {
+
+        private static final List<Map<String, Object>> ROWS = List.of(
+                row(1, "Laptop Pro", "electronics", "999.99"),
+                row(2, "Wireless Mouse", "electronics", "49.99"),
+                row(3, "Office Chair", "furniture", "299.99"),
+                row(4, "Nest Hub", "smart-home", "99.99"));
+
+        public StubTable table(String name) {
+            return new StubTable();
+        }
+
+        public Object query(String sql, Object... params) {
+            return ROWS;
+        }
+
+        private static Map<String, Object> row(long id, String name, String category, String price) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", id);
+            row.put("name", name);
+            row.put("category", category);
+            row.put("price", new BigDecimal(price));
+            return row;
+        }
+    }
+
+    public static class StubTable {
+
+        public Object findById(Object id) {
+            return StubDb.ROWS.get(0);
+        }
+
+        public List<Map<String, Object>> findAll() {
+            return StubDb.ROWS;
+        }
+
+        public List<Map<String, Object>> where(Map<String, Object> conditions) {
+            return StubDb.ROWS.stream()
+                    .filter(row -> conditions.entrySet().stream()
+                            .allMatch(condition -> String.valueOf(condition.getValue()).equals(String.valueOf(row.get(condition.getKey())))))
+                    .toList();
+        }
+
+        public Object findOne(Map<String, Object> conditions) {
+            List<Map<String, Object>> rows = where(conditions);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        public Long count() {
+            return (long) StubDb.ROWS.size();
+        }
+    }
+}
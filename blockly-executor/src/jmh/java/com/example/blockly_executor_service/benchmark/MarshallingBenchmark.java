@@ -0,0 +1,117 @@
+package com.example.blockly_executor_service.benchmark;
+
+import com.example.blockly_executor_service.service.engine.ParamProxies;
+import com.example.blockly_executor_service.service.engine.ValueConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Передача больших параметров в скрипт и результата обратно.
+ * Аллокации смотреть с профайлером gc:
+ * ./gradlew :blockly-executor:jmh -Pjmh.includes=MarshallingBenchmark "-Pjmh.args=-prof gc"
+ *
+ * params: host — Java Map/List как host-объекты (прежний путь), proxy — ParamProxies.
+ * result: polyglot — Value.as(Object.class) и Jackson по polyglot-оберткам (прежний путь),
+ * tree — ValueConverter.toJava и Jackson по обычным Map/List.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshallingBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"host", "proxy"})
+    public String params;
+
+    @Param({"polyglot", "tree"})
+    public String result;
+
+    private Engine engine;
+    private Context context;
+    private Source sumScript;
+    private Source mapScript;
+    private List<Object> payload;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = Engine.newBuilder("js").option("engine.WarnInterpreterOnly", "false").build();
+        context = Context.newBuilder("js")
+                .engine(engine)
+                .allowHostAccess(HostAccess.ALL)
+                .allowHostClassLookup(className -> false)
+                .build();
+        objectMapper = new ObjectMapper();
+        payload = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("name", "product-" + i);
+            row.put("category", i % 2 == 0 ? "electronics" : "furniture");
+            row.put("price", 10.5 + i);
+            row.put("tags", new ArrayList<>(List.of("a", "b")));
+            payload.add(row);
+        }
+        sumScript = Source.create("js", """
+                var total = 0;
+                for (var i = 0; i < items.length; i++) {
+                    if (items[i].category === 'electronics') total += items[i].price;
+                }
+                total;
+                """);
+        mapScript = Source.create("js", """
+                var out = [];
+                for (var i = 0; i < items.length; i++) {
+                    out.push({id: items[i].id, label: items[i].name + ':' + items[i].category, price: items[i].price * 2});
+                }
+                out;
+                """);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        engine.close();
+    }
+
+    /**
+     * Чтение параметров: скрипт обходит все строки. Путь результата не участвует.
+     */
+    @Benchmark
+    public double readParams() {
+        bindParams();
+        return context.eval(sumScript).asDouble();
+    }
+
+    /**
+     * Полный путь: параметры в скрипт, массив объектов из скрипта, сериализация ответа.
+     */
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        bindParams();
+        Value value = context.eval(mapScript);
+        Object response = "tree".equals(result) ? ValueConverter.toJava(value) : value.as(Object.class);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private void bindParams() {
+        Object items = "proxy".equals(params) ? ParamProxies.wrap(payload) : payload;
+        context.getBindings("js").putMember("items", items);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.blockly_executor_service.benchmark;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import com.example.blockly_executor_service.service.ScriptScheduler;
+import com.example.blockly_executor_service.service.engine.ContextPool;
+import com.example.blockly_executor_service.service.engine.PooledContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение платформенных и виртуальных потоков на I/O-нагруженных скриптах.
+ * Каждый скрипт дважды блокируется на имитации запроса к БД (как DB.table(...).where(...)).
+ *
+ * Режим virtual требует Java 21:
+ * ./gradlew :blockly-executor:jmh -PjavaVersion=21 -Pjmh.includes=SchedulerModeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class SchedulerModeBenchmark {
+
+    private static final int SCRIPTS_PER_BATCH = 500;
+    private static final int PLATFORM_WORKERS = 16;
+    private static final int VIRTUAL_WORKERS = SCRIPTS_PER_BATCH;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"10"})
+    public long dbLatencyMillis;
+
+    private Engine engine;
+    private ContextPool contextPool;
+    private ScriptScheduler scheduler;
+    private AsyncTaskExecutor executor;
+    private Source source;
+    private SimulatedDb db;
+    private int peakThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(mode);
+        int workers = virtual ? VIRTUAL_WORKERS : PLATFORM_WORKERS;
+
+        engine = Engine.newBuilder("js").option("engine.WarnInterpreterOnly", "false").build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        contextPool = new ContextPool(engine, meterRegistry, new TenantBudgetProperties(), true, workers, workers, 1000, 60_000, 0);
+        executor = virtual ? virtualExecutor() : platformExecutor(workers);
+        scheduler = new ScriptScheduler(executor, meterRegistry, workers, SCRIPTS_PER_BATCH);
+        source = Source.create("js", "var a = DB.fetch(); var b = DB.fetch(); a + b;");
+        db = new SimulatedDb(dbLatencyMillis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n[%s] peak live platform threads: %d%n", mode, peakThreads);
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+        contextPool.shutdown();
+        engine.close();
+    }
+
+    @Benchmark
+    public int ioBoundBatch() throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>(SCRIPTS_PER_BATCH);
+        for (int i = 0; i < SCRIPTS_PER_BATCH; i++) {
+            futures.add(scheduler.submit(this::runScript));
+        }
+        peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+        int sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    private int runScript() throws InterruptedException {
+        PooledContext pooled = contextPool.acquire("benchmark");
+        try {
+            pooled.bindings().putMember("DB", db);
+            return pooled.getContext().eval(source).asInt();
+        } finally {
+            contextPool.release(pooled, true);
+        }
+    }
+
+    private static AsyncTaskExecutor platformExecutor(int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(SCRIPTS_PER_BATCH);
+        executor.setThreadNamePrefix("bench-script-");
+        executor.initialize();
+        return executor;
+    }
+
+    private static AsyncTaskExecutor virtualExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("bench-script-vt-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Блокирующий вызов с фиксированной задержкой вместо JDBC round trip.
+     */
+    public static class SimulatedDb {
+
+        private final long latencyMillis;
+
+        SimulatedDb(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        public int fetch() throws InterruptedException {
+            Thread.sleep(latencyMillis);
+            return 1;
+        }
+    }
+}
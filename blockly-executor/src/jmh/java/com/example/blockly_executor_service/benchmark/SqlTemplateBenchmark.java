@@ -0,0 +1,123 @@
+package com.example.blockly_executor_service.benchmark;
+
+import com.example.blockly_executor_service.dao.DaoSettings;
+import com.example.blockly_executor_service.dao.ReadRoute;
+import com.example.blockly_executor_service.dao.TenantAwareDao;
+import com.example.blockly_executor_service.service.engine.RowCache;
+import com.example.blockly_executor_service.service.engine.SingleFlight;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Подготовка SQL в TenantAwareDao без БД: прежнее построение строки с проверкой колонок
+ * на каждый вызов (legacy) против шаблонов SqlTemplates (template). JdbcTemplate-заглушка
+ * только принимает текст запроса и параметры.
+ * ./gradlew :blockly-executor:jmh -Pjmh.includes=SqlTemplateBenchmark "-Pjmh.args=-prof gc"
+ *
+ * Эффект серверных prepared statement (prepareThreshold) здесь не виден — он измеряется
+ * только на реальном PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlTemplateBenchmark {
+
+    private static final Pattern VALID_COLUMN_NAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    private static final String TABLE = "tenant_appliner.products";
+
+    private TenantAwareDao dao;
+    private Map<String, Object> conditions;
+    private Map<String, Object> changes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcTemplate stub = new JdbcTemplate() {
+            @Override
+            public List<Map<String, Object>> queryForList(String sql, Object... args) {
+                return List.of();
+            }
+
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                return List.of();
+            }
+        };
+        dao = new TenantAwareDao("appliner", "products", stub, null, () -> { }, ExecutionProfile.DISABLED,
+                DaoSettings.DEFAULTS, new RowCache(new SimpleMeterRegistry(), false, Set.of(), 0, 0),
+                new SingleFlight(new SimpleMeterRegistry(), false), ReadRoute.primary(stub));
+        conditions = new LinkedHashMap<>();
+        conditions.put("category", "electronics");
+        conditions.put("in_stock", true);
+        changes = new LinkedHashMap<>();
+        changes.put("price", 99.5);
+        changes.put("name", "Laptop");
+    }
+
+    @Benchmark
+    public Object whereTemplate() {
+        return dao.where(conditions);
+    }
+
+    @Benchmark
+    public void whereLegacy(Blackhole blackhole) {
+        StringBuilder sql = new StringBuilder(String.format("SELECT * FROM %s WHERE 1=1", TABLE));
+        List<Object> params = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : conditions.entrySet()) {
+            if (!VALID_COLUMN_NAME.matcher(entry.getKey()).matches()) {
+                throw new SecurityException("Invalid column name: " + entry.getKey());
+            }
+            sql.append(" AND ").append(entry.getKey()).append(" = ?");
+            params.add(entry.getValue());
+        }
+        sql.append(" ORDER BY id");
+        blackhole.consume(sql.toString());
+        blackhole.consume(params.toArray());
+    }
+
+    @Benchmark
+    public Object updateTemplate() {
+        // update удаляет служебные ключи из переданного Map, поэтому копия
+        return dao.update(1L, new LinkedHashMap<>(changes));
+    }
+
+    @Benchmark
+    public void updateLegacy(Blackhole blackhole) {
+        Map<String, Object> data = new LinkedHashMap<>(changes);
+        data.remove("id");
+        data.remove("created_at");
+        data.remove("updated_at");
+        for (String columnName : data.keySet()) {
+            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
+                throw new SecurityException("Invalid column name: " + columnName);
+            }
+        }
+        List<String> setClauses = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            setClauses.add(entry.getKey() + " = ?");
+            params.add(entry.getValue());
+        }
+        setClauses.add("updated_at = CURRENT_TIMESTAMP");
+        params.add(1L);
+        String sql = String.format("UPDATE %s SET %s WHERE id = ? RETURNING *", TABLE,
+                setClauses.stream().collect(Collectors.joining(", ")));
+        blackhole.consume(sql);
+        blackhole.consume(params.toArray());
+    }
+}
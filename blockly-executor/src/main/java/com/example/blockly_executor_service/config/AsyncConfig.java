@@ -1,11 +1,18 @@
 package com.example.blockly_executor_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync(proxyTargetClass = true)
@@ -25,4 +32,127 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Пул для выполнения скриптов: фиксированное число воркеров и ограниченная очередь.
+     * При переполнении задача отклоняется (AbortPolicy), а не создает новый поток.
+     */
+    @Bean(name = "scriptTaskExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "false", matchIfMissing = true)
+    public AsyncTaskExecutor scriptTaskExecutor(
+            @Value("${blockly.executor.scheduler.workers:16}") int workers,
+            @Value("${blockly.executor.scheduler.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("script-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Режим виртуальных потоков (Java 21+): поток на каждый скрипт.
+     * Число одновременно выполняемых скриптов ограничивает ScriptScheduler.
+     */
+    @Bean(name = "scriptTaskExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "true")
+    public AsyncTaskExecutor virtualScriptTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("script-vt-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Медленная полоса ScriptScheduler: скрипты, которые по истории выполняются дольше
+     * blockly.executor.scheduler.lanes.slow-threshold-ms. Свои воркеры и своя очередь.
+     */
+    @Bean(name = "slowScriptTaskExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "false", matchIfMissing = true)
+    public AsyncTaskExecutor slowScriptTaskExecutor(
+            @Value("${blockly.executor.scheduler.lanes.slow.workers:4}") int workers,
+            @Value("${blockly.executor.scheduler.lanes.slow.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("script-slow-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "slowScriptTaskExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "true")
+    public AsyncTaskExecutor virtualSlowScriptTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("script-slow-vt-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Пул ввода-вывода для асинхронных запросов скриптов (DB.*Async).
+     * Реальный параллелизм запросов ограничен также размером пула соединений Hikari.
+     */
+    @Bean(name = "dbIoExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "false", matchIfMissing = true)
+    public AsyncTaskExecutor dbIoExecutor(
+            @Value("${blockly.executor.db-io.threads:8}") int threads,
+            @Value("${blockly.executor.db-io.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("db-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * В режиме виртуальных потоков запрос выполняется в своем виртуальном потоке,
+     * общее число одновременных запросов ограничено concurrencyLimit.
+     */
+    @Bean(name = "dbIoExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "true")
+    public AsyncTaskExecutor virtualDbIoExecutor(@Value("${blockly.executor.db-io.threads:8}") int threads) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("db-io-vt-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(threads);
+        return executor;
+    }
+
+    /**
+     * Передача сообщения из Kafka listener на обработку.
+     * В обычном режиме обработка идет в потоке consumer'а.
+     */
+    @Bean(name = "procedureDispatchExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "false", matchIfMissing = true)
+    public TaskExecutor procedureDispatchExecutor() {
+        return new SyncTaskExecutor();
+    }
+
+    /**
+     * В режиме виртуальных потоков сообщения пакета обрабатываются параллельно, каждое в своем
+     * виртуальном потоке. Одновременно обрабатывается не больше max-in-flight сообщений:
+     * при достижении лимита поток consumer'а ждет, следующий poll откладывается.
+     */
+    @Bean(name = "procedureDispatchExecutor")
+    @ConditionalOnProperty(name = "blockly.executor.scheduler.virtual-threads", havingValue = "true")
+    public TaskExecutor virtualProcedureDispatchExecutor(
+            @Value("${blockly.executor.dispatch.max-in-flight:1000}") int maxInFlight) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("procedure-vt-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxInFlight);
+        return executor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.blockly_executor_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Дополнительные пулы к основному spring.datasource:
+ * - журнал выполнений (LoggingService): запись журнала не ждет соединения за медленными
+ *   запросами скриптов, а скрипты не ждут журнал. Адрес и учетные данные берутся
+ *   из spring.datasource, настройки пула — из blockly.log-datasource.hikari;
+ * - реплика для чтений DAO (ReplicaRouter), если blockly.replica.enabled:
+ *   адрес и пул — blockly.replica.datasource.
+ *
+ * defaultCandidate = false: основной DataSource, JdbcTemplate, JPA и Liquibase
+ * по-прежнему настраивает Spring Boot.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("logDataSource")
+    @ConfigurationProperties("blockly.log-datasource.hikari")
+    public HikariDataSource logDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("logJdbcTemplate")
+    public JdbcTemplate logJdbcTemplate(@Qualifier("logDataSource") HikariDataSource logDataSource) {
+        return new JdbcTemplate(logDataSource);
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("replicaDataSource")
+    @ConditionalOnProperty(name = "blockly.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("blockly.replica.datasource")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("replicaJdbcTemplate")
+    @ConditionalOnProperty(name = "blockly.replica.enabled", havingValue = "true")
+    public JdbcTemplate replicaJdbcTemplate(@Qualifier("replicaDataSource") HikariDataSource replicaDataSource) {
+        return new JdbcTemplate(replicaDataSource);
+    }
+}
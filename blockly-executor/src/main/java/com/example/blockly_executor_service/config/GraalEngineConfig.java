@@ -0,0 +1,79 @@
+package com.example.blockly_executor_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Engine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Slf4j
+@Configuration
+public class GraalEngineConfig {
+
+    @Value("${blockly.executor.engine-cache.mode:none}")
+    private String engineCacheMode;
+
+    @Value("${blockly.executor.engine-cache.path:/var/cache/blockly/js-engine.img}")
+    private String engineCachePath;
+
+    /**
+     * Общий GraalVM Engine для всех контекстов.
+     * Разобранные исходники и JIT-код живут в Engine и переиспользуются между выполнениями.
+     *
+     * Auxiliary engine cache (blockly.executor.engine-cache.mode):
+     * load — Engine стартует с разобранным и частично скомпилированным кодом из файла,
+     * store — код, накопленный за время работы, сохраняется в файл при закрытии Engine.
+     * Требует Truffle Enterprise (Oracle GraalVM, сборка с -PtruffleEnterpriseJar),
+     * на остальных рантаймах кеш отключается с предупреждением.
+     */
+    @Bean(destroyMethod = "close")
+    public Engine graalEngine() {
+        Engine engine = buildEngine(engineCacheOption());
+        log.info("Shared GraalVM engine created: {} {}", engine.getImplementationName(), engine.getVersion());
+        return engine;
+    }
+
+    private String engineCacheOption() {
+        switch (engineCacheMode) {
+            case "load":
+                if (!Files.isReadable(Path.of(engineCachePath))) {
+                    log.warn("Engine cache {} not found, starting with a cold engine", engineCachePath);
+                    return null;
+                }
+                return "engine.CacheLoad";
+            case "store":
+                try {
+                    Path parent = Path.of(engineCachePath).toAbsolutePath().getParent();
+                    Files.createDirectories(parent);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot create engine cache directory for " + engineCachePath, e);
+                }
+                return "engine.CacheStore";
+            default:
+                return null;
+        }
+    }
+
+    private Engine buildEngine(String cacheOption) {
+        Engine.Builder builder = Engine.newBuilder("js")
+                .option("engine.WarnInterpreterOnly", "false");
+        if (cacheOption == null) {
+            return builder.build();
+        }
+        try {
+            Engine engine = builder.option(cacheOption, engineCachePath).build();
+            log.info("Engine cache enabled: {}={}", cacheOption, engineCachePath);
+            return engine;
+        } catch (IllegalArgumentException e) {
+            log.warn("Engine cache is not supported by this GraalVM runtime, starting without it: {}", e.getMessage());
+            return Engine.newBuilder("js")
+                    .option("engine.WarnInterpreterOnly", "false")
+                    .build();
+        }
+    }
+}
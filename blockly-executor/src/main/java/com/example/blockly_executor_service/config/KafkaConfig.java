@@ -18,6 +18,7 @@ import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
@@ -34,6 +35,9 @@ public class KafkaConfig {
     @Value("${kafka.topic.partitions:6}")
     private int topicPartitions;
 
+    @Value("${blockly.kafka.max-poll-records:500}")
+    private int maxPollRecords;
+
     /**
      * Создание топика с конфигурируемым количеством партиций.
      * Рекомендуется: partitions >= max ожидаемое количество инстансов.
@@ -60,18 +64,24 @@ public class KafkaConfig {
         props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, ProcedurePayload.class.getName());
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Offset фиксирует контейнер после обработки пакета (AckMode.BATCH)
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     /**
-     * Listener container factory для blockly-executor
+     * Listener container factory для blockly-executor.
+     * Listener получает пакет из poll и возвращается после обработки всех сообщений,
+     * только тогда контейнер фиксирует offset пакета.
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ProcedurePayload<?>> blocklyKafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, ProcedurePayload<?>> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(blocklyConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
         factory.getContainerProperties().setMissingTopicsFatal(false);
         return factory;
     }
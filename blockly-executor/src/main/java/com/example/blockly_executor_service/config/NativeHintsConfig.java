@@ -0,0 +1,59 @@
+package com.example.blockly_executor_service.config;
+
+import com.example.blockly_executor_service.dao.DatabaseAccessor;
+import com.example.blockly_executor_service.dao.RowCursor;
+import com.example.blockly_executor_service.dao.TenantAwareDao;
+import com.example.blockly_executor_service.model.BatchExecutionRequest;
+import com.example.blockly_executor_service.model.ExecutionRequest;
+import com.example.blockly_executor_service.model.ExecutionResult;
+import com.example.common.model.ExecutionMetadata;
+import com.example.common.model.ProcedurePayload;
+import com.example.common.model.ProcedureRequestDto;
+import com.example.common.model.ProcedureResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Метаданные для native image (./gradlew :blockly-executor:nativeCompile -Pnative).
+ * На JVM не влияют. Бины, JPA-сущности и контроллеры Spring AOT описывает сам,
+ * здесь — то, что AOT не видит: объекты, доступные из JS, и типы Kafka JSON serde.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.BlocklyRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class BlocklyRuntimeHints implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Хост-объекты, методы которых вызываются из скриптов через GraalJS
+            for (Class<?> hostType : new Class<?>[]{
+                    DatabaseAccessor.class, TenantAwareDao.class, RowCursor.class,
+                    // параметры (Jackson) и строки результатов JdbcTemplate.queryForList
+                    ArrayList.class, LinkedHashMap.class, HashMap.class, LinkedCaseInsensitiveMap.class}) {
+                hints.reflection().registerType(hostType, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+
+            // Kafka JsonSerializer/JsonDeserializer и REST-модели
+            bindingRegistrar.registerReflectionHints(hints.reflection(),
+                    ProcedurePayload.class, ProcedureResponse.class, ProcedureRequestDto.class, ExecutionMetadata.class,
+                    ExecutionRequest.class, BatchExecutionRequest.class, ExecutionResult.class);
+
+            // Корпус прогрева и changelog Liquibase читаются с classpath по шаблону
+            hints.resources().registerPattern("warmup/*.js");
+            hints.resources().registerPattern("db/changelog/*.yaml");
+            hints.resources().registerPattern("db/changelog/changes/*.yaml");
+        }
+    }
+}
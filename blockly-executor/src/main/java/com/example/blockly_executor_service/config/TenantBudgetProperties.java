@@ -0,0 +1,58 @@
+package com.example.blockly_executor_service.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Бюджеты ресурсов тенантов: blockly.tenants.defaults и переопределения
+ * blockly.tenants.overrides.&lt;tenantId&gt; (незаданные поля берутся из defaults).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "blockly.tenants")
+public class TenantBudgetProperties {
+
+    private Budget defaults = new Budget(8, 5000L, 10L, 10L, 0L, 0, 6);
+
+    private Map<String, Budget> overrides = new HashMap<>();
+
+    public Budget budgetFor(String tenantId) {
+        Budget override = overrides.get(tenantId);
+        if (override == null) {
+            return defaults;
+        }
+        return new Budget(
+                override.getMaxConcurrentScripts() != null ? override.getMaxConcurrentScripts() : defaults.getMaxConcurrentScripts(),
+                override.getCpuQuotaMs() != null ? override.getCpuQuotaMs() : defaults.getCpuQuotaMs(),
+                override.getCpuWindowSeconds() != null ? override.getCpuWindowSeconds() : defaults.getCpuWindowSeconds(),
+                override.getTimeoutSeconds() != null ? override.getTimeoutSeconds() : defaults.getTimeoutSeconds(),
+                override.getMaxHeapMb() != null ? override.getMaxHeapMb() : defaults.getMaxHeapMb(),
+                override.getMinConnections() != null ? override.getMinConnections() : defaults.getMinConnections(),
+                override.getMaxConnections() != null ? override.getMaxConnections() : defaults.getMaxConnections()
+        );
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        /** Одновременно выполняемые скрипты тенанта */
+        private Integer maxConcurrentScripts;
+        /** CPU-время скриптов тенанта за окно, 0 — без ограничения */
+        private Long cpuQuotaMs;
+        private Long cpuWindowSeconds;
+        private Long timeoutSeconds;
+        /** Максимальная куча одного Context (sandbox.MaxHeapMemory, только Oracle GraalVM), 0 — без ограничения */
+        private Long maxHeapMb;
+        /** Соединения общего пула, зарезервированные за тенантом (только для тенантов из overrides) */
+        private Integer minConnections;
+        /** Максимум одновременно занятых тенантом соединений общего пула */
+        private Integer maxConnections;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.blockly_executor_service.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разобранный запрос TenantAwareDao.aggregate: {sum: "price", count: true, groupBy: "category", where: {...}}.
+ * Функции хранятся как "функция:колонка" ("count:*" для COUNT(*)), имена колонок проверяет SqlTemplates.
+ * Разбирается в потоке скрипта: spec — JS-объект, привязанный к Context.
+ */
+record Aggregation(List<String> functions, List<String> groupBy, Map<String, Object> where) {
+
+    static final List<String> FUNCTIONS = List.of("count", "sum", "avg", "min", "max");
+
+    static Aggregation parse(Map<String, Object> spec) {
+        if (spec == null) {
+            throw new IllegalArgumentException("Aggregate spec cannot be null");
+        }
+        List<String> functions = new ArrayList<>();
+        List<String> groupBy = List.of();
+        Map<String, Object> where = Map.of();
+        for (Map.Entry<String, Object> entry : spec.entrySet()) {
+            String option = entry.getKey();
+            Object value = entry.getValue();
+            if (FUNCTIONS.contains(option)) {
+                if ("count".equals(option) && Boolean.TRUE.equals(value)) {
+                    functions.add("count:*");
+                    continue;
+                }
+                for (String column : columnNames(option, value)) {
+                    functions.add(option + ":" + column);
+                }
+            } else if ("groupBy".equals(option)) {
+                groupBy = columnNames(option, value);
+            } else if ("where".equals(option)) {
+                if (value instanceof Map<?, ?> conditions) {
+                    Map<String, Object> copy = new LinkedHashMap<>();
+                    conditions.forEach((column, condition) -> copy.put(String.valueOf(column), condition));
+                    where = copy;
+                } else if (value != null) {
+                    throw new IllegalArgumentException("Aggregate option where expects an object");
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown aggregate option: " + option);
+            }
+        }
+        if (functions.isEmpty() && groupBy.isEmpty()) {
+            throw new IllegalArgumentException("Aggregate needs count, sum, avg, min, max or groupBy");
+        }
+        return new Aggregation(List.copyOf(functions), groupBy, where);
+    }
+
+    private static List<String> columnNames(String option, Object value) {
+        if (value instanceof String column) {
+            return List.of(column);
+        }
+        if (value instanceof List<?> list && !list.isEmpty()) {
+            List<String> columns = new ArrayList<>(list.size());
+            for (Object column : list) {
+                if (!(column instanceof String name)) {
+                    throw new IllegalArgumentException("Aggregate option " + option + " expects column names");
+                }
+                columns.add(name);
+            }
+            return List.copyOf(columns);
+        }
+        throw new IllegalArgumentException("Aggregate option " + option + " expects a column name or an array of names");
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.blockly_executor_service.dao;
+
+import com.example.blockly_executor_service.service.engine.ValueConverter;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Строка результата DAO: общий для всего запроса индекс колонок и массив значений.
+ * В отличие от LinkedCaseInsensitiveMap у строки нет своей хеш-таблицы с узлами на каждую колонку.
+ *
+ * В JS — объект (ProxyObject): row.price, Object.keys(row), JSON.stringify(row);
+ * в Java и Jackson — Map. Имена колонок без учета регистра, как в queryForList.
+ * Запись из JS меняет значение колонки, новые ключи хранятся отдельно.
+ */
+public final class CompactRow extends AbstractMap<String, Object> implements ProxyObject {
+
+    // Значение удаленной колонки: место в массиве остается, колонка не видна
+    private static final Object REMOVED = new Object();
+
+    private final Columns columns;
+    private final Object[] values;
+    // Ключи, добавленные сверх колонок запроса
+    private Map<String, Object> extra;
+
+    public CompactRow(Columns columns, Object[] values) {
+        if (values.length != columns.names.length) {
+            throw new IllegalArgumentException("Expected " + columns.names.length + " values, got " + values.length);
+        }
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * Независимая копия строки с тем же индексом колонок.
+     */
+    public CompactRow copy() {
+        CompactRow copy = new CompactRow(columns, values.clone());
+        if (extra != null) {
+            copy.extra = new LinkedHashMap<>(extra);
+        }
+        return copy;
+    }
+
+    /**
+     * Колонки результата запроса, одни на все его строки.
+     */
+    public static final class Columns {
+
+        private final String[] names;
+        private final Map<String, Integer> index;
+
+        public Columns(String... names) {
+            this.names = names.clone();
+            this.index = new HashMap<>(names.length * 4);
+            for (int i = 0; i < names.length; i++) {
+                index.putIfAbsent(names[i], i);
+                index.putIfAbsent(names[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        int indexOf(String key) {
+            Integer i = index.get(key);
+            if (i == null) {
+                i = index.get(key.toLowerCase(Locale.ROOT));
+            }
+            return i != null ? i : -1;
+        }
+
+        public int size() {
+            return names.length;
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        int i = columns.indexOf(name);
+        if (i >= 0) {
+            return values[i] == REMOVED ? null : values[i];
+        }
+        return extra != null ? extra.get(name) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String name)) {
+            return false;
+        }
+        int i = columns.indexOf(name);
+        if (i >= 0) {
+            return values[i] != REMOVED;
+        }
+        return extra != null && extra.containsKey(name);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int i = columns.indexOf(key);
+        if (i >= 0) {
+            Object previous = values[i];
+            values[i] = value;
+            return previous == REMOVED ? null : previous;
+        }
+        if (extra == null) {
+            extra = new LinkedHashMap<>();
+        }
+        return extra.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        int i = columns.indexOf(name);
+        if (i >= 0) {
+            Object previous = values[i];
+            values[i] = REMOVED;
+            return previous == REMOVED ? null : previous;
+        }
+        return extra != null ? extra.remove(name) : null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                int size = extra != null ? extra.size() : 0;
+                for (Object value : values) {
+                    if (value != REMOVED) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    // ProxyObject: доступ из JS
+
+    @Override
+    public Object getMember(String key) {
+        return get(key);
+    }
+
+    @Override
+    public Object getMemberKeys() {
+        return ProxyArray.fromArray(keySet().toArray());
+    }
+
+    @Override
+    public boolean hasMember(String key) {
+        return containsKey(key);
+    }
+
+    @Override
+    public void putMember(String key, Value value) {
+        put(key, ValueConverter.toJava(value));
+    }
+
+    @Override
+    public boolean removeMember(String key) {
+        if (!containsKey(key)) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next = advance(0);
+        private int current = -1;
+        private Iterator<Entry<String, Object>> extraIterator;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == REMOVED) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < values.length) {
+                return true;
+            }
+            if (extraIterator == null && extra != null) {
+                extraIterator = extra.entrySet().iterator();
+            }
+            return extraIterator != null && extraIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (next < values.length) {
+                current = next;
+                next = advance(next + 1);
+                int i = current;
+                return new SimpleEntry<>(columns.names[i], values[i]) {
+                    @Override
+                    public Object setValue(Object value) {
+                        values[i] = value;
+                        return super.setValue(value);
+                    }
+                };
+            }
+            current = -1;
+            return extraIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (current >= 0) {
+                values[current] = REMOVED;
+                current = -1;
+            } else if (extraIterator != null) {
+                extraIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+}
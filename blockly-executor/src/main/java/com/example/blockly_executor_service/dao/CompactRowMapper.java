@@ -0,0 +1,35 @@
+package com.example.blockly_executor_service.dao;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * RowMapper в CompactRow. Колонки читаются из метаданных первой строки и общие для всех
+ * строк результата, поэтому экземпляр — на один запрос.
+ */
+final class CompactRowMapper implements RowMapper<Map<String, Object>> {
+
+    private CompactRow.Columns columns;
+
+    @Override
+    public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (columns == null) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            String[] names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+            }
+            columns = new CompactRow.Columns(names);
+        }
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+        }
+        return new CompactRow(columns, values);
+    }
+}
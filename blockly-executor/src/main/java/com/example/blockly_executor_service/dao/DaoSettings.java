@@ -0,0 +1,13 @@
+package com.example.blockly_executor_service.dao;
+
+/**
+ * Настройки чтения TenantAwareDao.
+ *
+ * @param maxRows     сколько строк можно получить списком (findAll/where/page), 0 — без ограничения
+ * @param fetchSize   сколько строк курсор stream() забирает за одно обращение к БД
+ * @param compactRows строки результатов как CompactRow, иначе LinkedCaseInsensitiveMap (queryForList)
+ */
+public record DaoSettings(int maxRows, int fetchSize, boolean compactRows) {
+
+    public static final DaoSettings DEFAULTS = new DaoSettings(0, 500, false);
+}
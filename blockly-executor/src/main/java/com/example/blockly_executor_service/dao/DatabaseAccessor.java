@@ -1,33 +1,106 @@
 package com.example.blockly_executor_service.dao;
 
+import com.example.blockly_executor_service.service.engine.RowCache;
+import com.example.blockly_executor_service.service.engine.ScriptEventLoop;
+import com.example.blockly_executor_service.service.engine.ScriptResultCache;
+import com.example.blockly_executor_service.service.engine.SingleFlight;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.graalvm.polyglot.HostAccess;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @RequiredArgsConstructor
-public class DatabaseAccessor {
+public class DatabaseAccessor implements AutoCloseable {
 
     private final String tenantId;
     private final JdbcTemplate jdbcTemplate;
+    // Асинхронные запросы (*Async) текущего выполнения
+    @Getter
+    private final ScriptEventLoop eventLoop;
+    private final ScriptResultCache resultCache;
+    private final RowCache rowCache;
+    private final SingleFlight singleFlight;
+    // Чтения выполнения: реплика до первой записи, затем primary
+    private final ReadRoute reads;
+    // ExecutionProfile.DISABLED, если выполнение не профилируется
+    @Getter
+    private final ExecutionProfile profile;
+    private final DaoSettings settings;
     private final ConcurrentHashMap<String, TenantAwareDao> daoCache = new ConcurrentHashMap<>();
+    // Для кеша результатов: писал ли скрипт и выполнял ли произвольный SQL
+    @Getter
+    private volatile boolean wrote;
+    private volatile boolean rawQueries;
 
     @HostAccess.Export
     public TenantAwareDao table(String tableName) {
+        // Имена без кавычек PostgreSQL приводит к нижнему регистру: "Products" и "products" —
+        // одна таблица, поэтому один DAO, одна зависимость кеша результатов и одна инвалидация
+        String table = tableName != null ? tableName.toLowerCase(Locale.ROOT) : null;
         // Создаем DAO только при первом обращении к таблице
-        return daoCache.computeIfAbsent(tableName, name -> {
+        return daoCache.computeIfAbsent(table, name -> {
             log.debug("Creating DAO for table: {} (tenant: {})", name, tenantId);
-            return new TenantAwareDao(tenantId, name, jdbcTemplate);
+            return new TenantAwareDao(tenantId, name, jdbcTemplate, eventLoop, () -> onWrite(name), profile, settings, rowCache,
+                    singleFlight, reads);
         });
     }
 
     @HostAccess.Export
     public Object query(String sql, Object... params) {
         log.debug("Executing custom query for tenant {}: {}", tenantId, sql);
+        checkQuery(sql);
+        rawQueries = true;
+        return profile.db("sql", "query", () -> read(sql, params));
+    }
+
+    /**
+     * Асинхронный вариант query: возвращает Promise, запросы можно объединять через Promise.all.
+     */
+    @HostAccess.Export
+    public Object queryAsync(String sql, Object... params) {
+        checkQuery(sql);
+        rawQueries = true;
+        return eventLoop.promise(() -> profile.db("sql", "queryAsync", () -> read(sql, params)));
+    }
 
+    /**
+     * Таблицы, от которых зависит результат скрипта. Произвольный SQL — зависимость от всех таблиц.
+     */
+    public Set<String> tablesRead() {
+        return rawQueries ? Set.of(ScriptResultCache.ALL_TABLES) : Set.copyOf(daoCache.keySet());
+    }
+
+    /**
+     * Освобождает ресурсы выполнения: курсоры stream(), не дочитанные скриптом.
+     */
+    @Override
+    public void close() {
+        daoCache.values().forEach(TenantAwareDao::closeCursors);
+    }
+
+    private List<Map<String, Object>> read(String sql, Object[] params) {
+        boolean replica = reads.replica();
+        return singleFlight.run(tenantId, replica, reads.queryTimeoutNanos(), sql, params,
+                () -> reads.read(replica, jdbc -> jdbc.queryForList(sql, params)), Rows::copyAll);
+    }
+
+    private void onWrite(String table) {
+        wrote = true;
+        reads.pin();
+        singleFlight.onWrite(tenantId);
+        resultCache.invalidate(tenantId, table);
+    }
+
+    private void checkQuery(String sql) {
         // Проверка безопасности - только SELECT
         if (!sql.trim().toUpperCase().startsWith("SELECT")) {
             throw new SecurityException("Only SELECT queries are allowed");
@@ -49,7 +122,5 @@ public class DatabaseAccessor {
             }
             index += allowedSchema.length();
         }
-
-        return jdbcTemplate.queryForList(sql, params);
     }
 }
@@ -0,0 +1,42 @@
+package com.example.blockly_executor_service.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcTemplate одного выполнения скрипта: таймаут каждого запроса — время, оставшееся
+ * до срока выполнения. После таймаута скрипта запрос в БД тоже останавливается
+ * и не держит воркер и соединение.
+ */
+public class DeadlineJdbcTemplate extends JdbcTemplate {
+
+    private final long deadlineNanos;
+
+    public DeadlineJdbcTemplate(DataSource dataSource, long deadlineNanos) {
+        super(dataSource);
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Тот же срок для другого источника (реплики).
+     */
+    DeadlineJdbcTemplate on(DataSource dataSource) {
+        return new DeadlineJdbcTemplate(dataSource, deadlineNanos);
+    }
+
+    /**
+     * Время до срока выполнения, нс (отрицательное — срок истек).
+     */
+    long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        long remaining = remainingNanos();
+        // Не меньше секунды: 0 в JDBC означает «без таймаута»
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.blockly_executor_service.dao;
+
+import com.example.blockly_executor_service.service.engine.ReplicaRouter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Маршрут чтений одного выполнения скрипта: на реплику, пока выполнение ничего не записало,
+ * после первой записи — только на primary, чтобы скрипт видел свои изменения.
+ */
+public final class ReadRoute {
+
+    private final JdbcTemplate primary;
+    // null — реплика не используется
+    private final ReplicaRouter router;
+    // Реплика с тем же таймаутом запросов, что и primary
+    private final JdbcTemplate replica;
+    private volatile boolean pinned;
+
+    public ReadRoute(JdbcTemplate primary, ReplicaRouter router) {
+        this.primary = primary;
+        this.router = router;
+        this.replica = router != null && router.replica() != null ? sameTimeout(primary, router.replica()) : null;
+    }
+
+    public static ReadRoute primary(JdbcTemplate primary) {
+        return new ReadRoute(primary, null);
+    }
+
+    /**
+     * Пойдет ли следующее чтение на реплику. Решение передается в read, чтобы ключ
+     * SingleFlight и фактический источник совпадали.
+     */
+    boolean replica() {
+        return !pinned && router != null && router.available();
+    }
+
+    /**
+     * Сколько чтение может ждать такой же запрос другого скрипта (SingleFlight): не дольше,
+     * чем выполнялся бы свой запрос. 0 — таймаут запросов не задан.
+     */
+    long queryTimeoutNanos() {
+        if (primary instanceof DeadlineJdbcTemplate deadline) {
+            return Math.max(1, deadline.remainingNanos());
+        }
+        return TimeUnit.SECONDS.toNanos(Math.max(0, primary.getQueryTimeout()));
+    }
+
+    <T> T read(boolean replica, Function<JdbcTemplate, T> query) {
+        return router != null ? router.read(primary, replica ? this.replica : null, query) : query.apply(primary);
+    }
+
+    private static JdbcTemplate sameTimeout(JdbcTemplate primary, JdbcTemplate replica) {
+        if (primary instanceof DeadlineJdbcTemplate deadline) {
+            return deadline.on(replica.getDataSource());
+        }
+        if (primary.getQueryTimeout() <= 0) {
+            return replica;
+        }
+        JdbcTemplate copy = new JdbcTemplate(replica.getDataSource());
+        copy.setQueryTimeout(primary.getQueryTimeout());
+        return copy;
+    }
+
+    /**
+     * Запись выполнения: дальше все чтения с primary.
+     */
+    void pin() {
+        pinned = true;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.blockly_executor_service.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.HostAccess;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Потоковое чтение строк через серверный курсор: PgJDBC держит в памяти не больше fetchSize
+ * строк, следующая порция запрашивается по мере чтения. В JS — for (const row of cursor).
+ *
+ * Курсор занимает соединение из пула до конца чтения; незакрытые курсоры закрываются
+ * по окончании выполнения скрипта (DatabaseAccessor.close). Используется только из потока скрипта.
+ */
+@Slf4j
+public class RowCursor implements Iterator<Map<String, Object>>, Iterable<Map<String, Object>>, AutoCloseable {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final RowMapper<Map<String, Object>> rowMapper;
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private int rowNum;
+    private Boolean hasNext;
+    private boolean closed;
+
+    RowCursor(JdbcTemplate jdbcTemplate, String sql, Object[] params, int fetchSize,
+              RowMapper<Map<String, Object>> rowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = sql;
+        this.rowMapper = rowMapper;
+        try {
+            connection = jdbcTemplate.getDataSource().getConnection();
+            // Без транзакции PgJDBC читает весь результат сразу и fetchSize не работает
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (jdbcTemplate.getQueryTimeout() > 0) {
+                statement.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+            }
+            new ArgumentPreparedStatementSetter(params).setValues(statement);
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            close();
+            throw jdbcTemplate.getExceptionTranslator().translate("stream", sql, e);
+        }
+    }
+
+    @Override
+    @HostAccess.Export
+    public boolean hasNext() {
+        if (hasNext == null) {
+            try {
+                hasNext = !closed && resultSet.next();
+            } catch (SQLException e) {
+                close();
+                throw jdbcTemplate.getExceptionTranslator().translate("stream", sql, e);
+            }
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    @HostAccess.Export
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasNext = null;
+        try {
+            return rowMapper.mapRow(resultSet, rowNum++);
+        } catch (SQLException e) {
+            close();
+            throw jdbcTemplate.getExceptionTranslator().translate("stream", sql, e);
+        }
+    }
+
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        return this;
+    }
+
+    /**
+     * Закрывает курсор и возвращает соединение в пул; повторный вызов ничего не делает.
+     */
+    @Override
+    @HostAccess.Export
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasNext = false;
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+            if (connection != null) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to close cursor: {}", e.getMessage());
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Failed to release cursor connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.blockly_executor_service.dao;
+
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Копии строк результата для тех, кто делит один результат: кеш строк и общие запросы
+ * SingleFlight. Скрипт может изменить полученную строку, другие этого видеть не должны.
+ */
+final class Rows {
+
+    private Rows() {
+    }
+
+    static Map<String, Object> copy(Map<String, Object> row) {
+        if (row instanceof CompactRow compact) {
+            return compact.copy();
+        }
+        Map<String, Object> copy = new LinkedCaseInsensitiveMap<>(row.size());
+        copy.putAll(row);
+        return copy;
+    }
+
+    static List<Map<String, Object>> copyAll(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> copies = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            copies.add(row != null ? copy(row) : null);
+        }
+        return copies;
+    }
+}
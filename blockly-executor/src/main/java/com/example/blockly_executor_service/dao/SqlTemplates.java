@@ -0,0 +1,236 @@
+package com.example.blockly_executor_service.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Кеш проверенного SQL для TenantAwareDao по (таблица со схемой, операция, набор колонок).
+ * При попадании не строится строка и не проверяются имена колонок.
+ *
+ * Колонки в SQL отсортированы, поэтому where({a, b}) и where({b, a}) дают один текст запроса:
+ * PgJDBC переиспользует серверный prepared statement по тексту (prepareThreshold,
+ * preparedStatementCacheQueries в настройках datasource).
+ *
+ * Кеш общий для всех DAO. При переполнении очищается целиком — это редкое событие,
+ * а наборы колонок приходят из скриптов и не ограничены.
+ */
+final class SqlTemplates {
+
+    private static final Pattern VALID_COLUMN_NAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    static final int MAX_TEMPLATES = 10_000;
+
+    private static final ConcurrentHashMap<Key, Template> TEMPLATES = new ConcurrentHashMap<>();
+
+    enum Operation {
+        FIND_BY_ID, FIND_ALL, WHERE, INSERT, UPDATE, DELETE, COUNT,
+        // Keyset-пагинация: WHERE по колонкам, id > ? (для PAGE_AFTER) и LIMIT ?
+        PAGE, PAGE_AFTER,
+        // SELECT группировки и агрегатов с WHERE по колонкам и GROUP BY
+        AGGREGATE,
+        // Пакетные операции: INSERT на rows строк (с ON CONFLICT по conflict для UPSERT),
+        // UPDATE одной строки для JDBC-пакета
+        INSERT_MANY, INSERT_MANY_RETURNING_ID, UPSERT_MANY, UPSERT_MANY_RETURNING_ID, UPDATE_MANY
+    }
+
+    /**
+     * Проверенный SQL и порядок колонок для параметров.
+     */
+    record Template(String sql, String[] columns) {
+
+        Object[] params(Map<String, Object> values, Object... trailing) {
+            Object[] params = new Object[columns.length + trailing.length];
+            for (int i = 0; i < columns.length; i++) {
+                params[i] = values.get(columns[i]);
+            }
+            System.arraycopy(trailing, 0, params, columns.length, trailing.length);
+            return params;
+        }
+
+        /**
+         * Параметры многострочного INSERT: значения строк подряд.
+         */
+        Object[] params(List<Map<String, Object>> rows) {
+            Object[] params = new Object[columns.length * rows.size()];
+            int i = 0;
+            for (Map<String, Object> row : rows) {
+                for (String column : columns) {
+                    params[i++] = row.get(column);
+                }
+            }
+            return params;
+        }
+    }
+
+    private record Key(String table, Operation operation, List<String> columns, List<String> conflict, int rows,
+                       List<String> select, List<String> groupBy) {
+    }
+
+    private SqlTemplates() {
+    }
+
+    static Template get(String table, Operation operation) {
+        return get(table, operation, List.of());
+    }
+
+    static Template get(String table, Operation operation, Collection<String> columns) {
+        return get(table, operation, columns, List.of(), 1);
+    }
+
+    static Template get(String table, Operation operation, Collection<String> columns,
+                        Collection<String> conflict, int rows) {
+        return get(new Key(table, operation, List.copyOf(columns), List.copyOf(conflict), rows, List.of(), List.of()));
+    }
+
+    /**
+     * Чтение с проекцией: SELECT перечисленных колонок вместо SELECT *, пустой select — все колонки.
+     */
+    static Template projected(String table, Operation operation, Collection<String> columns, List<String> select) {
+        return get(new Key(table, operation, List.copyOf(columns), List.of(), 1, select, List.of()));
+    }
+
+    /**
+     * Агрегация: functions в виде "функция:колонка" (см. Aggregation), WHERE по колонкам columns.
+     */
+    static Template aggregate(String table, Collection<String> columns, List<String> functions, List<String> groupBy) {
+        return get(new Key(table, Operation.AGGREGATE, List.copyOf(columns), List.of(), 1, functions, groupBy));
+    }
+
+    private static Template get(Key key) {
+        Template template = TEMPLATES.get(key);
+        if (template != null) {
+            return template;
+        }
+        template = build(key.table(), key.operation(), key.columns(), key.conflict(), key.rows(), key.select(),
+                key.groupBy());
+        if (TEMPLATES.size() >= MAX_TEMPLATES) {
+            TEMPLATES.clear();
+        }
+        TEMPLATES.put(key, template);
+        return template;
+    }
+
+    static int size() {
+        return TEMPLATES.size();
+    }
+
+    private static Template build(String table, Operation operation, List<String> columns,
+                                  List<String> conflict, int rows, List<String> select, List<String> groupBy) {
+        if (operation == Operation.AGGREGATE) {
+            return buildAggregate(table, columns, select, groupBy);
+        }
+        // Валидация имен колонок
+        for (String columnName : select) {
+            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
+                throw new SecurityException("Invalid column name: " + columnName);
+            }
+        }
+        String from = "SELECT " + (select.isEmpty() ? "*" : String.join(", ", select)) + " FROM " + table;
+        for (String columnName : columns) {
+            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
+                throw new SecurityException("Invalid column name: " + columnName);
+            }
+        }
+        for (String columnName : conflict) {
+            if (!columns.contains(columnName)) {
+                throw new IllegalArgumentException("Conflict column is not in row: " + columnName);
+            }
+        }
+        String[] sorted = columns.stream().sorted().toArray(String[]::new);
+
+        String sql = switch (operation) {
+            case FIND_BY_ID -> from + " WHERE id = ?";
+            case FIND_ALL -> from + " ORDER BY id";
+            case WHERE -> from + " WHERE 1=1"
+                    + Arrays.stream(sorted).map(c -> " AND " + c + " = ?").collect(Collectors.joining())
+                    + " ORDER BY id";
+            case PAGE -> from + " WHERE 1=1"
+                    + Arrays.stream(sorted).map(c -> " AND " + c + " = ?").collect(Collectors.joining())
+                    + " ORDER BY id LIMIT ?";
+            case PAGE_AFTER -> from + " WHERE 1=1"
+                    + Arrays.stream(sorted).map(c -> " AND " + c + " = ?").collect(Collectors.joining())
+                    + " AND id > ? ORDER BY id LIMIT ?";
+            case INSERT -> "INSERT INTO " + table + " (" + String.join(", ", sorted) + ") VALUES ("
+                    + Arrays.stream(sorted).map(c -> "?").collect(Collectors.joining(", ")) + ") RETURNING *";
+            case UPDATE -> "UPDATE " + table + " SET "
+                    + Arrays.stream(sorted).map(c -> c + " = ?").collect(Collectors.joining(", "))
+                    + ", updated_at = CURRENT_TIMESTAMP WHERE id = ? RETURNING *";
+            case DELETE -> "DELETE FROM " + table + " WHERE id = ?";
+            case COUNT -> "SELECT COUNT(*) FROM " + table + (sorted.length == 0 ? "" : " WHERE 1=1"
+                    + Arrays.stream(sorted).map(c -> " AND " + c + " = ?").collect(Collectors.joining()));
+            case AGGREGATE -> throw new IllegalStateException("Built by buildAggregate");
+            case INSERT_MANY -> insertValues(table, sorted, rows);
+            case INSERT_MANY_RETURNING_ID -> insertValues(table, sorted, rows) + " RETURNING id";
+            case UPSERT_MANY -> insertValues(table, sorted, rows) + onConflict(sorted, conflict, false);
+            case UPSERT_MANY_RETURNING_ID -> insertValues(table, sorted, rows) + onConflict(sorted, conflict, true)
+                    + " RETURNING id";
+            case UPDATE_MANY -> "UPDATE " + table + " SET "
+                    + Arrays.stream(sorted).map(c -> c + " = ?").collect(Collectors.joining(", "))
+                    + ", updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        };
+        return new Template(sql, sorted);
+    }
+
+    private static Template buildAggregate(String table, List<String> columns, List<String> functions,
+                                           List<String> groupBy) {
+        List<String> select = new ArrayList<>(groupBy.size() + functions.size());
+        for (String columnName : Stream.concat(columns.stream(), groupBy.stream()).toList()) {
+            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
+                throw new SecurityException("Invalid column name: " + columnName);
+            }
+        }
+        select.addAll(groupBy);
+        for (String function : functions) {
+            int colon = function.indexOf(':');
+            String name = function.substring(0, colon);
+            String column = function.substring(colon + 1);
+            if (!Aggregation.FUNCTIONS.contains(name)) {
+                throw new IllegalArgumentException("Unknown aggregate function: " + name);
+            }
+            if ("*".equals(column) && "count".equals(name)) {
+                select.add("COUNT(*) AS count");
+                continue;
+            }
+            if (!VALID_COLUMN_NAME.matcher(column).matches()) {
+                throw new SecurityException("Invalid column name: " + column);
+            }
+            select.add(name.toUpperCase(Locale.ROOT) + "(" + column + ") AS " + name + "_" + column);
+        }
+        String[] sorted = columns.stream().sorted().toArray(String[]::new);
+        String groups = String.join(", ", groupBy);
+
+        String sql = "SELECT " + String.join(", ", select) + " FROM " + table + " WHERE 1=1"
+                + Arrays.stream(sorted).map(c -> " AND " + c + " = ?").collect(Collectors.joining())
+                + (groupBy.isEmpty() ? "" : " GROUP BY " + groups + " ORDER BY " + groups);
+        return new Template(sql, sorted);
+    }
+
+    private static String insertValues(String table, String[] columns, int rows) {
+        String row = Arrays.stream(columns).map(c -> "?").collect(Collectors.joining(", ", "(", ")"));
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES "
+                + String.join(", ", Collections.nCopies(rows, row));
+    }
+
+    private static String onConflict(String[] columns, List<String> conflict, boolean returning) {
+        List<String> keys = conflict.stream().sorted().toList();
+        List<String> updates = Arrays.stream(columns).filter(c -> !keys.contains(c)).toList();
+        String target = " ON CONFLICT (" + String.join(", ", keys) + ")";
+        if (updates.isEmpty()) {
+            // Для RETURNING нужна строка и для существующей записи: DO NOTHING ее не вернет
+            return returning
+                    ? target + " DO UPDATE SET " + keys.get(0) + " = EXCLUDED." + keys.get(0)
+                    : target + " DO NOTHING";
+        }
+        return target + " DO UPDATE SET "
+                + updates.stream().map(c -> c + " = EXCLUDED." + c).collect(Collectors.joining(", "))
+                + ", updated_at = CURRENT_TIMESTAMP";
+    }
+}
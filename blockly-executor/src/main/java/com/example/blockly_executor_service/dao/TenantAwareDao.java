@@ -1,26 +1,67 @@
 package com.example.blockly_executor_service.dao;
 
+import com.example.blockly_executor_service.dao.SqlTemplates.Operation;
+import com.example.blockly_executor_service.service.engine.RowCache;
+import com.example.blockly_executor_service.service.engine.ScriptEventLoop;
+import com.example.blockly_executor_service.service.engine.SingleFlight;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
 import lombok.extern.slf4j.Slf4j;
 import org.graalvm.polyglot.HostAccess;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class TenantAwareDao {
 
     private static final Pattern VALID_IDENTIFIER = Pattern.compile("^[a-zA-Z0-9_-]+$");
-    private static final Pattern VALID_COLUMN_NAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    // Строк в одном многострочном INSERT; число параметров запроса в PgJDBC ограничено
+    private static final int BULK_CHUNK_ROWS = 500;
+    private static final int MAX_QUERY_PARAMS = 32_767;
 
     private final String tenantId;
     private final String tableName;
     private final JdbcTemplate jdbcTemplate;
-
-    public TenantAwareDao(String tenantId, String tableName, JdbcTemplate jdbcTemplate){
+    private final ScriptEventLoop eventLoop;
+    // Вызывается после create/update/delete: инвалидирует кеш результатов по таблице
+    private final Runnable onWrite;
+    // Время вызовов БД по методам, если выполнение профилируется
+    private final ExecutionProfile profile;
+    private final String table;
+    private final DaoSettings settings;
+    // findById/findOne для таблиц, включенных в blockly.executor.row-cache.tables
+    private final RowCache rowCache;
+    // Объединение одинаковых одновременных чтений тенанта
+    private final SingleFlight singleFlight;
+    // Чтения: реплика или primary (после записи выполнения — только primary)
+    private final ReadRoute reads;
+    // Колонки для чтения (select), пустой список — SELECT *
+    private final List<String> projection;
+    // Открытые курсоры stream(), закрываются по окончании выполнения; общие с проекциями
+    private final List<RowCursor> cursors;
+    // Для пакетной записи, создается при первом вызове
+    private TransactionTemplate transactionTemplate;
+
+    public TenantAwareDao(String tenantId, String tableName, JdbcTemplate jdbcTemplate, ScriptEventLoop eventLoop,
+                          Runnable onWrite, ExecutionProfile profile, DaoSettings settings, RowCache rowCache,
+                          SingleFlight singleFlight, ReadRoute reads){
         // Валидация tenantId
         if (tenantId == null || tenantId.isEmpty()) {
             throw new SecurityException("Tenant ID cannot be null or empty");
@@ -41,28 +82,90 @@ public class TenantAwareDao {
         //tableName со схемой конкретного тенанта
         this.tableName = "tenant_" + tenantId + "." + tableName;
         this.jdbcTemplate = jdbcTemplate;
+        this.eventLoop = eventLoop;
+        this.onWrite = onWrite;
+        this.profile = profile;
+        this.settings = settings;
+        this.rowCache = rowCache;
+        this.singleFlight = singleFlight;
+        this.reads = reads;
+        this.projection = List.of();
+        this.cursors = new ArrayList<>();
+        this.table = tableName;
         log.debug("Created DAO for table: {} with tenantId: {}", this.tableName, tenantId);
     }
 
+    private TenantAwareDao(TenantAwareDao source, List<String> projection) {
+        this.tenantId = source.tenantId;
+        this.tableName = source.tableName;
+        this.jdbcTemplate = source.jdbcTemplate;
+        this.eventLoop = source.eventLoop;
+        this.onWrite = source.onWrite;
+        this.profile = source.profile;
+        this.settings = source.settings;
+        this.rowCache = source.rowCache;
+        this.singleFlight = source.singleFlight;
+        this.reads = source.reads;
+        this.projection = projection;
+        this.cursors = source.cursors;
+        this.table = source.table;
+    }
+
+    /**
+     * Та же таблица, но чтение (findById/findAll/where/findOne/page/stream) возвращает только
+     * перечисленные колонки: DB.table("products").select("id", "price").where({...}).
+     * id добавляется всегда — он нужен для page(). Запись не меняется.
+     */
+    @HostAccess.Export
+    public TenantAwareDao select(String... columns) {
+        if (columns == null || columns.length == 0) {
+            return projection.isEmpty() ? this : new TenantAwareDao(this, List.of());
+        }
+        List<String> select = new ArrayList<>(columns.length + 1);
+        for (String column : columns) {
+            if (column == null) {
+                throw new IllegalArgumentException("Column name cannot be null");
+            }
+            if (!select.contains(column)) {
+                select.add(column);
+            }
+        }
+        if (!select.contains("id")) {
+            select.add(0, "id");
+        }
+        // Имена колонок проверяются при построении шаблона
+        return new TenantAwareDao(this, List.copyOf(select));
+    }
+
     @HostAccess.Export
     public Object findById(Object id) {
-        String sql = String.format(
-                "SELECT * FROM %s WHERE id = ?",
-                tableName
-        );
+        boolean cached = projection.isEmpty() && rowCache.isCached(tenantId, table);
+        long version = 0;
+        if (cached) {
+            Map<String, Object> row = rowCache.getById(tenantId, table, id);
+            if (row != null) {
+                return Rows.copy(row);
+            }
+            version = rowCache.version(tenantId, table);
+        }
+        String sql = SqlTemplates.projected(tableName, Operation.FIND_BY_ID, List.of(), projection).sql();
 
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, id);
-        return results.isEmpty() ? null : results.get(0);
+        List<Map<String, Object>> results = profile.db(table, "findById",
+                () -> read(sql, new Object[]{id}, jdbc -> jdbc.query(sql, rowMapper(), id)));
+        if (results.isEmpty()) {
+            return null;
+        }
+        if (cached) {
+            rowCache.putById(tenantId, table, id, Rows.copy(results.get(0)), version);
+        }
+        return results.get(0);
     }
 
     @HostAccess.Export
     public List<Map<String, Object>> findAll() {
-        String sql = String.format(
-                "SELECT * FROM %s ORDER BY id",
-                tableName
-        );
+        String sql = SqlTemplates.projected(tableName, Operation.FIND_ALL, List.of(), projection).sql();
 
-        return jdbcTemplate.queryForList(sql);
+        return profile.db(table, "findAll", () -> queryLimited(sql));
     }
 
     @HostAccess.Export
@@ -71,35 +174,101 @@ public class TenantAwareDao {
             return findAll();
         }
 
-        StringBuilder sql = new StringBuilder(String.format(
-                "SELECT * FROM %s WHERE 1=1",
-                tableName
-        ));
+        // Имена колонок проверяются при построении шаблона
+        SqlTemplates.Template template = SqlTemplates.projected(tableName, Operation.WHERE, conditions.keySet(), projection);
+        Object[] params = template.params(conditions);
+
+        return profile.db(table, "where", () -> queryLimited(template.sql(), params));
+    }
 
-        List<Object> params = new ArrayList<>();
+    /**
+     * Страница строк по возрастанию id: следующую страницу дает afterId = id последней строки.
+     * В отличие от OFFSET, стоимость не растет с номером страницы.
+     */
+    @HostAccess.Export
+    public List<Map<String, Object>> page(Object afterId, int limit) {
+        return page(null, afterId, limit);
+    }
 
-        for (Map.Entry<String, Object> entry : conditions.entrySet()) {
-            String columnName = entry.getKey();
+    @HostAccess.Export
+    public List<Map<String, Object>> page(Map<String, Object> conditions, Object afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        if (settings.maxRows() > 0 && limit > settings.maxRows()) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + settings.maxRows() + ": " + limit);
+        }
+        Map<String, Object> values = conditions != null ? conditions : Map.of();
+        SqlTemplates.Template template = SqlTemplates.projected(tableName,
+                afterId == null ? Operation.PAGE : Operation.PAGE_AFTER, values.keySet(), projection);
+        Object[] params = afterId == null ? template.params(values, limit) : template.params(values, afterId, limit);
 
-            // Валидация имени колонки
-            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
-                throw new SecurityException("Invalid column name: " + columnName);
-            }
+        return profile.db(table, "page",
+                () -> read(template.sql(), params, jdbc -> jdbc.query(template.sql(), rowMapper(), params)));
+    }
 
-            sql.append(" AND ").append(columnName).append(" = ?");
-            params.add(entry.getValue());
+    /**
+     * Все строки (с условиями или без) курсором по возрастанию id: в памяти не больше fetchSize строк.
+     * Курсор занимает соединение до конца чтения или cursor.close().
+     */
+    @HostAccess.Export
+    public RowCursor stream() {
+        return stream(null);
+    }
+
+    @HostAccess.Export
+    public RowCursor stream(Map<String, Object> conditions) {
+        String sql;
+        Object[] params;
+        if (conditions == null || conditions.isEmpty()) {
+            sql = SqlTemplates.projected(tableName, Operation.FIND_ALL, List.of(), projection).sql();
+            params = new Object[0];
+        } else {
+            SqlTemplates.Template template = SqlTemplates.projected(tableName, Operation.WHERE, conditions.keySet(), projection);
+            sql = template.sql();
+            params = template.params(conditions);
         }
 
-        sql.append(" ORDER BY id");
+        boolean replica = replica();
+        RowCursor cursor = profile.db(table, "stream", () -> reads.read(replica,
+                jdbc -> new RowCursor(jdbc, sql, params, settings.fetchSize(), rowMapper())));
+        synchronized (cursors) {
+            cursors.removeIf(RowCursor::isClosed);
+            cursors.add(cursor);
+        }
+        return cursor;
+    }
 
-        return jdbcTemplate.queryForList(sql.toString(), params.toArray());
+    /**
+     * Закрывает курсоры, не дочитанные скриптом.
+     */
+    public void closeCursors() {
+        synchronized (cursors) {
+            cursors.forEach(RowCursor::close);
+            cursors.clear();
+        }
     }
 
 
     @HostAccess.Export
     public Object findOne(Map<String, Object> conditions) {
-        List<Map<String, Object>> results = where(conditions);
-        return results.isEmpty() ? null : results.get(0);
+        if (conditions == null || conditions.isEmpty() || !projection.isEmpty() || !rowCache.isCached(tenantId, table)) {
+            List<Map<String, Object>> results = where(conditions);
+            return results.isEmpty() ? null : results.get(0);
+        }
+        // Ключ кеша не должен зависеть от JS-объекта
+        Map<String, Object> copy = new LinkedHashMap<>(conditions);
+        Map<String, Object> row = rowCache.getOne(tenantId, table, copy);
+        if (row != null) {
+            return Rows.copy(row);
+        }
+        long version = rowCache.version(tenantId, table);
+        List<Map<String, Object>> results = where(copy);
+        if (results.isEmpty()) {
+            return null;
+        }
+        rowCache.putOne(tenantId, table, copy, Rows.copy(results.get(0)), version);
+        return results.get(0);
     }
 
     @HostAccess.Export
@@ -108,25 +277,12 @@ public class TenantAwareDao {
         data.remove("created_at");
         data.remove("updated_at");
 
-        // Валидация имен колонок
-        for (String columnName : data.keySet()) {
-            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
-                throw new SecurityException("Invalid column name: " + columnName);
-            }
-        }
+        SqlTemplates.Template template = SqlTemplates.get(tableName, Operation.INSERT, data.keySet());
+        Object[] values = template.params(data);
 
-        List<String> columns = new ArrayList<>(data.keySet());
-        String columnsSql = String.join(", ", columns);
-        String valuesSql = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
-
-        String sql = String.format(
-                "INSERT INTO %s (%s) VALUES (%s) RETURNING *",
-                tableName, columnsSql, valuesSql
-        );
-
-        Object[] values = columns.stream().map(data::get).toArray();
-
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, values);
+        List<Map<String, Object>> results = profile.db(table, "create", () -> jdbcTemplate.queryForList(template.sql(), values));
+        rowCache.invalidate(tenantId, table);
+        onWrite.run();
         return results.isEmpty() ? null : results.get(0);
     }
 
@@ -140,55 +296,369 @@ public class TenantAwareDao {
             return findById(id);
         }
 
-        // Валидация имен колонок
-        for (String columnName : data.keySet()) {
-            if (!VALID_COLUMN_NAME.matcher(columnName).matches()) {
-                throw new SecurityException("Invalid column name: " + columnName);
+        SqlTemplates.Template template = SqlTemplates.get(tableName, Operation.UPDATE, data.keySet());
+        Object[] params = template.params(data, id);
+
+        List<Map<String, Object>> results = profile.db(table, "update", () -> jdbcTemplate.queryForList(template.sql(), params));
+        // Кеш строк получает строку из RETURNING *
+        rowCache.refreshRow(tenantId, table, id, results.isEmpty() ? null : Rows.copy(results.get(0)));
+        onWrite.run();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+
+    @HostAccess.Export
+    public boolean delete(Object id) {
+        String sql = SqlTemplates.get(tableName, Operation.DELETE).sql();
+
+        int deleteCount = profile.db(table, "delete", () -> jdbcTemplate.update(sql, id));
+        rowCache.refreshRow(tenantId, table, id, null);
+        onWrite.run();
+        return deleteCount > 0;
+    }
+
+
+    @HostAccess.Export
+    public Long count() {
+        String sql = SqlTemplates.get(tableName, Operation.COUNT).sql();
+
+        boolean replica = replica();
+        return profile.db(table, "count", () -> reads.read(replica, jdbc -> jdbc.queryForObject(sql, Long.class)));
+    }
+
+    @HostAccess.Export
+    public Long count(Map<String, Object> conditions) {
+        if (conditions == null || conditions.isEmpty()) {
+            return count();
+        }
+        SqlTemplates.Template template = SqlTemplates.get(tableName, Operation.COUNT, conditions.keySet());
+        Object[] params = template.params(conditions);
+
+        boolean replica = replica();
+        return profile.db(table, "count",
+                () -> reads.read(replica, jdbc -> jdbc.queryForObject(template.sql(), Long.class, params)));
+    }
+
+    /**
+     * Агрегация одним запросом в БД вместо чтения строк в JS:
+     * DB.table("orders").aggregate({sum: "amount", count: true, groupBy: "status", where: {region: "eu"}}).
+     * count/sum/avg/min/max принимают колонку или массив колонок, count: true — COUNT(*).
+     * Поля результата: колонки groupBy, count, sum_amount, avg_amount и т.д.
+     * Без groupBy возвращается одна строка, с groupBy — строка на группу по возрастанию группы.
+     */
+    @HostAccess.Export
+    public Object aggregate(Map<String, Object> spec) {
+        return aggregate(Aggregation.parse(spec));
+    }
+
+    // Пакетная запись: одна транзакция на вызов, JDBC-пакет или многострочный INSERT вместо
+    // запроса на каждую строку
+
+    /**
+     * Вставка строк JDBC-пакетом (PgJDBC с reWriteBatchedInserts склеивает их в многострочные INSERT).
+     * Возвращает число вставленных строк.
+     */
+    @HostAccess.Export
+    public Object createMany(List<Map<String, Object>> rows) {
+        return createMany(rows, false);
+    }
+
+    /**
+     * С returnIds=true — многострочные INSERT ... RETURNING id, ids в порядке строк.
+     */
+    @HostAccess.Export
+    public Object createMany(List<Map<String, Object>> rows, boolean returnIds) {
+        List<Map<String, Object>> copies = copyRows(rows);
+        copies.forEach(row -> row.remove("id"));
+        return insertMany("createMany", copies, List.of(), returnIds);
+    }
+
+    /**
+     * INSERT ... ON CONFLICT (conflictColumns) DO UPDATE: существующие строки обновляются
+     * значениями из rows. Повторы ключа внутри rows схлопываются, побеждает последняя строка.
+     */
+    @HostAccess.Export
+    public Object upsertMany(List<Map<String, Object>> rows, List<String> conflictColumns) {
+        return upsertMany(rows, conflictColumns, false);
+    }
+
+    @HostAccess.Export
+    public Object upsertMany(List<Map<String, Object>> rows, List<String> conflictColumns, boolean returnIds) {
+        if (conflictColumns == null || conflictColumns.isEmpty()) {
+            throw new IllegalArgumentException("Conflict columns are required for upsertMany");
+        }
+        List<String> conflict = List.copyOf(conflictColumns);
+        List<Map<String, Object>> copies = copyRows(rows);
+
+        // Одна строка на ключ: PostgreSQL не обновляет строку дважды в одном INSERT ... ON CONFLICT
+        Map<List<Object>, Integer> positions = new HashMap<>();
+        List<Map<String, Object>> unique = new ArrayList<>();
+        int[] target = new int[copies.size()];
+        for (int i = 0; i < copies.size(); i++) {
+            Map<String, Object> row = copies.get(i);
+            List<Object> key = new ArrayList<>(conflict.size());
+            for (String column : conflict) {
+                if (!row.containsKey(column)) {
+                    throw new IllegalArgumentException("upsertMany row is missing conflict column: " + column);
+                }
+                key.add(row.get(column));
+            }
+            // NULL в ключе не конфликтует в PostgreSQL — такие строки не схлопываем
+            Integer position = key.contains(null) ? null : positions.putIfAbsent(key, unique.size());
+            if (position == null) {
+                target[i] = unique.size();
+                unique.add(row);
+            } else {
+                target[i] = position;
+                unique.set(position, row);
             }
         }
 
-        List<String> setClauses = new ArrayList<>();
-        List<Object> params = new ArrayList<>();
+        Object result = insertMany("upsertMany", unique, conflict, returnIds);
+        if (!returnIds) {
+            return copies.size();
+        }
+        List<?> ids = (List<?>) result;
+        List<Object> byRow = new ArrayList<>(copies.size());
+        for (int position : target) {
+            byRow.add(ids.get(position));
+        }
+        return byRow;
+    }
 
-        for (Map.Entry<String, Object> entry : data.entrySet()) {
-            setClauses.add(entry.getKey() + " = ?");
-            params.add(entry.getValue());
+    /**
+     * Обновление строк по id JDBC-пакетом. Каждая строка должна содержать id.
+     * Возвращает число обновленных строк.
+     */
+    @HostAccess.Export
+    public int updateMany(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> copies = copyRows(rows);
+        List<Object> ids = new ArrayList<>(copies.size());
+        for (Map<String, Object> row : copies) {
+            Object id = row.remove("id");
+            if (id == null) {
+                throw new IllegalArgumentException("updateMany row is missing id");
+            }
+            ids.add(id);
+        }
+        if (copies.isEmpty()) {
+            return 0;
         }
 
-        setClauses.add("updated_at = CURRENT_TIMESTAMP");
+        int updated = profile.db(table, "updateMany", () -> inTransaction(() -> {
+            int count = 0;
+            for (List<Integer> group : groupByColumns(copies).values()) {
+                Map<String, Object> first = copies.get(group.get(0));
+                if (first.isEmpty()) {
+                    continue;
+                }
+                SqlTemplates.Template template = SqlTemplates.get(tableName, Operation.UPDATE_MANY, first.keySet());
+                List<Object[]> batch = new ArrayList<>(group.size());
+                for (int i : group) {
+                    batch.add(template.params(copies.get(i), ids.get(i)));
+                }
+                count += affected(jdbcTemplate.batchUpdate(template.sql(), batch));
+            }
+            return count;
+        }));
+        rowCache.invalidateRows(tenantId, table);
+        onWrite.run();
+        return updated;
+    }
 
-        params.add(id);
+    private Object aggregate(Aggregation aggregation) {
+        SqlTemplates.Template template = SqlTemplates.aggregate(tableName, aggregation.where().keySet(),
+                aggregation.functions(), aggregation.groupBy());
+        Object[] params = template.params(aggregation.where());
 
-        String sql = String.format(
-                "UPDATE %s SET %s WHERE id = ? RETURNING *",
-                tableName,
-                String.join(", ", setClauses)
-        );
+        if (aggregation.groupBy().isEmpty()) {
+            List<Map<String, Object>> rows = profile.db(table, "aggregate",
+                    () -> read(template.sql(), params, jdbc -> jdbc.query(template.sql(), rowMapper(), params)));
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+        // Групп может быть столько же, сколько строк — то же ограничение, что у where
+        return profile.db(table, "aggregate", () -> queryLimited(template.sql(), params));
+    }
 
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, params.toArray());
-        return results.isEmpty() ? null : results.get(0);
+    private Object insertMany(String method, List<Map<String, Object>> rows, List<String> conflict, boolean returnIds) {
+        if (rows.isEmpty()) {
+            return returnIds ? List.of() : 0;
+        }
+        boolean upsert = !conflict.isEmpty();
+        Object[] ids = new Object[rows.size()];
+
+        profile.db(table, method, () -> inTransaction(() -> {
+            for (List<Integer> group : groupByColumns(rows).values()) {
+                Set<String> columns = rows.get(group.get(0)).keySet();
+                if (columns.isEmpty()) {
+                    throw new IllegalArgumentException(method + " row has no columns");
+                }
+                if (!returnIds) {
+                    SqlTemplates.Template template = SqlTemplates.get(tableName,
+                            upsert ? Operation.UPSERT_MANY : Operation.INSERT_MANY, columns, conflict, 1);
+                    List<Object[]> batch = new ArrayList<>(group.size());
+                    for (int i : group) {
+                        batch.add(template.params(rows.get(i)));
+                    }
+                    jdbcTemplate.batchUpdate(template.sql(), batch);
+                    continue;
+                }
+                // Порядок RETURNING совпадает с порядком VALUES
+                int chunk = Math.max(1, Math.min(BULK_CHUNK_ROWS, MAX_QUERY_PARAMS / columns.size()));
+                for (int from = 0; from < group.size(); from += chunk) {
+                    List<Integer> part = group.subList(from, Math.min(from + chunk, group.size()));
+                    SqlTemplates.Template template = SqlTemplates.get(tableName,
+                            upsert ? Operation.UPSERT_MANY_RETURNING_ID : Operation.INSERT_MANY_RETURNING_ID,
+                            columns, conflict, part.size());
+                    List<Map<String, Object>> partRows = part.stream().map(rows::get).toList();
+                    List<Map<String, Object>> results = jdbcTemplate.queryForList(template.sql(), template.params(partRows));
+                    for (int k = 0; k < part.size(); k++) {
+                        ids[part.get(k)] = results.get(k).get("id");
+                    }
+                }
+            }
+            return null;
+        }));
+        if (upsert) {
+            rowCache.invalidateRows(tenantId, table);
+        } else {
+            rowCache.invalidate(tenantId, table);
+        }
+        onWrite.run();
+        return returnIds ? Arrays.asList(ids) : rows.size();
+    }
+
+    /**
+     * Копии строк: JS-объекты привязаны к Context, служебные колонки не пишутся.
+     */
+    private static List<Map<String, Object>> copyRows(List<Map<String, Object>> rows) {
+        if (rows == null) {
+            throw new IllegalArgumentException("Rows cannot be null");
+        }
+        List<Map<String, Object>> copies = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            if (row == null) {
+                throw new IllegalArgumentException("Row cannot be null");
+            }
+            Map<String, Object> copy = new LinkedHashMap<>(row);
+            copy.remove("created_at");
+            copy.remove("updated_at");
+            copies.add(copy);
+        }
+        return copies;
     }
 
+    /**
+     * Индексы строк по набору колонок: у каждого набора свой SQL.
+     */
+    private static Map<Set<String>, List<Integer>> groupByColumns(List<Map<String, Object>> rows) {
+        Map<Set<String>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            groups.computeIfAbsent(rows.get(i).keySet(), k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    private static int affected(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Чтение с ограничением settings.maxRows: сервер отдает не больше maxRows + 1 строк,
+     * при превышении — ошибка вместо материализации всей таблицы.
+     */
+    private List<Map<String, Object>> queryLimited(String sql, Object... params) {
+        return read(sql, params, jdbc -> queryLimitedDirect(jdbc, sql, params));
+    }
+
+    private List<Map<String, Object>> queryLimitedDirect(JdbcTemplate jdbc, String sql, Object[] params) {
+        int maxRows = settings.maxRows();
+        if (maxRows <= 0) {
+            return jdbc.query(sql, rowMapper(), params);
+        }
+        List<Map<String, Object>> rows = jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setMaxRows(maxRows + 1);
+            return statement;
+        }, new ArgumentPreparedStatementSetter(params), new RowMapperResultSetExtractor<>(rowMapper()));
+        if (rows.size() > maxRows) {
+            throw new IllegalStateException("Query on " + table + " returned more than " + maxRows
+                    + " rows, use page() or stream()");
+        }
+        return rows;
+    }
+
+    /**
+     * Строки результата чтения: CompactRow (общий индекс колонок на запрос) или, если
+     * compact-rows выключен, LinkedCaseInsensitiveMap как у queryForList.
+     */
+    private RowMapper<Map<String, Object>> rowMapper() {
+        return settings.compactRows() ? new CompactRowMapper() : new ColumnMapRowMapper();
+    }
+
+    /**
+     * Чтение строк через SingleFlight: одинаковый одновременный запрос тенанта выполняется один раз.
+     */
+    private List<Map<String, Object>> read(String sql, Object[] params,
+                                           Function<JdbcTemplate, List<Map<String, Object>>> query) {
+        boolean replica = replica();
+        return singleFlight.run(tenantId, replica, reads.queryTimeoutNanos(), sql, params,
+                () -> reads.read(replica, query), Rows::copyAll);
+    }
+
+    /**
+     * Таблицы кеша строк читаются с primary: строка с отстающей реплики попала бы в кеш
+     * после записи и жила бы там до TTL.
+     */
+    private boolean replica() {
+        return reads.replica() && !rowCache.isCached(tenantId, table);
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        if (transactionTemplate == null) {
+            transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        }
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    // Асинхронные варианты чтения: возвращают Promise, запрос выполняется в пуле ввода-вывода
 
     @HostAccess.Export
-    public boolean delete(Object id) {
-        String sql = String.format(
-                "DELETE FROM %s WHERE id = ?",
-                tableName
-        );
+    public Object findByIdAsync(Object id) {
+        return eventLoop.promise(() -> findById(id));
+    }
 
-        int deleteCount = jdbcTemplate.update(sql, id);
-        return deleteCount > 0;
+    @HostAccess.Export
+    public Object findAllAsync() {
+        return eventLoop.promise(this::findAll);
     }
 
+    @HostAccess.Export
+    public Object whereAsync(Map<String, Object> conditions) {
+        // JS-объект привязан к Context: копируем до передачи в другой поток
+        Map<String, Object> copy = conditions != null ? new LinkedHashMap<>(conditions) : null;
+        return eventLoop.promise(() -> where(copy));
+    }
 
     @HostAccess.Export
-    public Long count() {
-        String sql = String.format(
-                "SELECT COUNT(*) FROM %s",
-                tableName
-        );
+    public Object findOneAsync(Map<String, Object> conditions) {
+        Map<String, Object> copy = conditions != null ? new LinkedHashMap<>(conditions) : null;
+        return eventLoop.promise(() -> findOne(copy));
+    }
 
-        return jdbcTemplate.queryForObject(sql, Long.class);
+    @HostAccess.Export
+    public Object countAsync() {
+        return eventLoop.promise(this::count);
+    }
+
+    @HostAccess.Export
+    public Object aggregateAsync(Map<String, Object> spec) {
+        // Разбор в потоке скрипта: spec привязан к Context
+        Aggregation aggregation = Aggregation.parse(spec);
+        return eventLoop.promise(() -> aggregate(aggregation));
     }
 }
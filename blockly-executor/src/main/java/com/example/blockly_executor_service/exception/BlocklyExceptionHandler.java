@@ -48,4 +48,31 @@ public class BlocklyExceptionHandler {
 
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
     }
+
+    /**
+     * Обработка переполнения планировщика скриптов
+     */
+    @ExceptionHandler(ScriptRejectedException.class)
+    public ResponseEntity<ProcedureResponse<?>> handleScriptRejected(ScriptRejectedException ex) {
+        log.warn("Script rejected: {}", ex.getMessage());
+
+        ProcedureResponse<?> response = ProcedureResponse.builder()
+                .success(false)
+                .errorMessage(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
+    @ExceptionHandler(TenantThrottledException.class)
+    public ResponseEntity<ProcedureResponse<?>> handleTenantThrottled(TenantThrottledException ex) {
+        log.warn("Tenant throttled: {}", ex.getMessage());
+
+        ProcedureResponse<?> response = ProcedureResponse.builder()
+                .success(false)
+                .errorMessage(ex.getMessage())
+                .build();
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+    }
 }
\ No newline at end of file
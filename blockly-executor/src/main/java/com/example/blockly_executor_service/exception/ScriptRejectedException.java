@@ -0,0 +1,12 @@
+package com.example.blockly_executor_service.exception;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Планировщик скриптов перегружен: все воркеры заняты и очередь заполнена.
+ */
+@StandardException
+public class ScriptRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,12 @@
+package com.example.blockly_executor_service.exception;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Тенант исчерпал свой бюджет (слоты выполнения или CPU-квоту).
+ */
+@StandardException
+public class TenantThrottledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+}
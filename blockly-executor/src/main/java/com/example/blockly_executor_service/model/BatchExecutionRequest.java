@@ -0,0 +1,33 @@
+package com.example.blockly_executor_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Один скрипт и список наборов параметров: скрипт компилируется один раз
+ * и выполняется для каждого набора в одном Context.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchExecutionRequest {
+    private String script;
+
+    private List<Map<String,Object>> parameterSets;
+
+    private Map<String,Object> headers;
+
+    private String requestId;
+
+    // Абсолютный срок ответа (epoch millis) из ExecutionMetadata, null — без срока
+    private Long deadline;
+
+    // Профилировать пакет (если профайлер включен), см. ScriptProfiler
+    private Boolean profile;
+}
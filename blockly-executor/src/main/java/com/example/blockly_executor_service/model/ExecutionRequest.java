@@ -19,4 +19,13 @@ public class ExecutionRequest {
     private Map<String,Object> headers;
 
     private String requestId;
+
+    // Абсолютный срок ответа (epoch millis) из ExecutionMetadata, null — без срока
+    private Long deadline;
+
+    // TTL кеша результатов, переопределяет аннотацию скрипта; 0 — не кешировать
+    private Integer cacheTtlSeconds;
+
+    // Профилировать это выполнение (если профайлер включен), см. ScriptProfiler
+    private Boolean profile;
 }
@@ -37,5 +37,14 @@ public class ScriptExecutionLog {
     private Instant endTime;
     private Long executionTime;
 
+    // Разбивка времени профилируемых выполнений (ScriptProfiler), иначе null
+    private Long queueWaitMs;
+    private Long compileMs;
+    private Long jsMs;
+    private Long jsCpuMs;
+    private Long dbMs;
+
+    @Column(length = 2000)
+    private String dbBreakdown;
 
 }
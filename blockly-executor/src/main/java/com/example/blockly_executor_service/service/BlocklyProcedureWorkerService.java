@@ -1,20 +1,26 @@
 package com.example.blockly_executor_service.service;
 
+import com.example.blockly_executor_service.service.warmup.StartupWarmupRunner;
 import com.example.common.ProcedureExecutor;
 import com.example.common.exception.ProcedureExecutionException;
 import com.example.common.mapper.ProcedureMapper;
 import com.example.common.model.ProcedurePayload;
 import com.example.common.model.ProcedureResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.example.common.exception.ExceptionMessages.PROCEDURE_NOT_FOUND;
 
@@ -27,11 +33,40 @@ public class BlocklyProcedureWorkerService {
     final ObjectMapper objectMapper;
     final KafkaTemplate<String, ProcedureResponse<?>> responseKafkaTemplate;
     final ProcedureMapper procedureMapper;
+    // SyncTaskExecutor или виртуальные потоки, см. AsyncConfig
+    final TaskExecutor procedureDispatchExecutor;
+    final MeterRegistry meterRegistry;
+
+    // Listener запускается StartupWarmupRunner после прогрева.
+    // Возврат из метода — сигнал контейнеру зафиксировать offset пакета, поэтому ждем обработки всех сообщений.
+    @KafkaListener(id = StartupWarmupRunner.LISTENER_ID, autoStartup = "false",
+            topics = "blockly-executor-procedures", groupId = "worker-blockly-executor", containerFactory = "blocklyKafkaListenerContainerFactory")
+    public void handleBlocklyProcedures(List<ProcedurePayload<?>> requests) {
+        CompletableFuture<?>[] processing = requests.stream()
+                .map(request -> CompletableFuture.runAsync(() -> processProcedure(request), procedureDispatchExecutor)
+                        .exceptionally(e -> {
+                            log.error("Failed to process procedure (requestId: {}): {}", request.requestId(), e.getMessage(), e);
+                            return null;
+                        }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(processing).join();
+    }
 
-    @KafkaListener(topics = "blockly-executor-procedures", groupId = "worker-blockly-executor", containerFactory = "blocklyKafkaListenerContainerFactory")
-    public void handleBlocklyProcedure(ProcedurePayload<?> request) {
+    void processProcedure(ProcedurePayload<?> request) {
         log.info("Processing BLOCKLY-EXECUTOR procedure: {} (requestId: {})", request.procedureName(), request.requestId());
 
+        // Routing уже ответил клиенту таймаутом: ответ был бы отброшен как неизвестный
+        if (request.metadata() != null && request.metadata().isExpired()) {
+            log.warn("Dropping expired procedure: {} (requestId: {}), deadline passed {} ms ago",
+                    request.procedureName(), request.requestId(), -request.metadata().remainingMillis());
+            Counter.builder("blockly.procedure.expired")
+                    .description("Сообщения, отброшенные без выполнения из-за истекшего deadline")
+                    .tag("procedure", String.valueOf(request.procedureName()))
+                    .register(meterRegistry)
+                    .increment();
+            return;
+        }
+
         try {
             ProcedureResponse<?> response = executeProcedure(request);
             sendResponse(request.replyTo(), request.requestId(), response);
@@ -1,47 +1,115 @@
 package com.example.blockly_executor_service.service;
 
+import com.example.blockly_executor_service.dao.DaoSettings;
 import com.example.blockly_executor_service.dao.DatabaseAccessor;
+import com.example.blockly_executor_service.dao.DeadlineJdbcTemplate;
+import com.example.blockly_executor_service.dao.ReadRoute;
+import com.example.blockly_executor_service.exception.ScriptRejectedException;
+import com.example.blockly_executor_service.exception.TenantThrottledException;
+import com.example.blockly_executor_service.model.BatchExecutionRequest;
 import com.example.blockly_executor_service.model.ExecutionRequest;
 import com.example.blockly_executor_service.model.ExecutionResult;
-import com.example.blockly_executor_service.repository.ScriptExecutionLogRepository;
-import com.example.common.exception.ProcedureExecutionException;
+import com.example.blockly_executor_service.service.engine.CachedScript;
+import com.example.blockly_executor_service.service.engine.ContextPool;
+import com.example.blockly_executor_service.service.engine.ParamProxies;
+import com.example.blockly_executor_service.service.engine.PooledContext;
+import com.example.blockly_executor_service.service.engine.ReplicaRouter;
+import com.example.blockly_executor_service.service.engine.RowCache;
+import com.example.blockly_executor_service.service.engine.SingleFlight;
+import com.example.blockly_executor_service.service.engine.ScriptCancellation;
+import com.example.blockly_executor_service.service.engine.ScriptEventLoop;
+import com.example.blockly_executor_service.service.engine.ScriptResultCache;
+import com.example.blockly_executor_service.service.engine.ScriptSourceCache;
+import com.example.blockly_executor_service.service.engine.ValueConverter;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
+import com.example.blockly_executor_service.service.profiling.ScriptProfiler;
+import com.example.blockly_executor_service.service.tenant.TenantConnectionGovernor;
+import com.example.blockly_executor_service.service.tenant.TenantPermit;
+import com.example.blockly_executor_service.service.tenant.TenantResourceGovernor;
+import com.example.blockly_executor_service.service.warmup.StartupWarmupRunner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service;
 
-import javax.script.*;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @EnableAsync(proxyTargetClass = true)
 public class JavaScriptExecutorService implements ScriptExecutionService {
 
-    private static final long SCRIPT_TIMEOUT_SECONDS = 10;
-    private final ExecutorService scriptExecutor = Executors.newCachedThreadPool();
-    private final ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
-    private final ScriptExecutionLogRepository scriptExecutionLogRepository;
-    private final JdbcTemplate jdbcTemplate;
+    // JdbcTemplate тенанта в рамках его доли пула соединений
+    private final TenantConnectionGovernor tenantConnections;
     private final LoggingService loggingService;
+    private final ContextPool contextPool;
+    private final ScriptSourceCache scriptSourceCache;
+    private final ScriptResultCache scriptResultCache;
+    private final RowCache rowCache;
+    private final SingleFlight singleFlight;
+    private final ReplicaRouter replicaRouter;
+    private final ScriptScheduler scriptScheduler;
+    private final ScriptProfiler scriptProfiler;
+    private final TenantResourceGovernor tenantResourceGovernor;
+    private final Engine engine;
+    private final MeterRegistry meterRegistry;
+    private final int maxBatchSize;
+    private final boolean paramProxies;
+    private final Executor dbIoExecutor;
+    private final int maxConcurrentQueriesPerScript;
+    private final DaoSettings daoSettings;
 
-    public JavaScriptExecutorService(ScriptExecutionLogRepository scriptExecutionLogRepository, JdbcTemplate jdbcTemplate, LoggingService loggingService) {
-        this.scriptExecutionLogRepository = scriptExecutionLogRepository;
-        this.jdbcTemplate = jdbcTemplate;
+    public JavaScriptExecutorService(TenantConnectionGovernor tenantConnections, LoggingService loggingService,
+                                     ContextPool contextPool, ScriptSourceCache scriptSourceCache, ScriptResultCache scriptResultCache,
+                                     RowCache rowCache, SingleFlight singleFlight, ReplicaRouter replicaRouter,
+                                     ScriptScheduler scriptScheduler, ScriptProfiler scriptProfiler,
+                                     TenantResourceGovernor tenantResourceGovernor, Engine engine, MeterRegistry meterRegistry,
+                                     @Value("${blockly.executor.batch.max-size:1000}") int maxBatchSize,
+                                     @Value("${blockly.executor.params.proxies:false}") boolean paramProxies,
+                                     @Qualifier("dbIoExecutor") Executor dbIoExecutor,
+                                     @Value("${blockly.executor.db-io.max-concurrent-per-script:4}") int maxConcurrentQueriesPerScript,
+                                     @Value("${blockly.executor.dao.max-rows:0}") int maxRows,
+                                     @Value("${blockly.executor.dao.fetch-size:500}") int fetchSize,
+                                     @Value("${blockly.executor.dao.compact-rows:false}") boolean compactRows) {
+        this.tenantConnections = tenantConnections;
         this.loggingService = loggingService;
+        this.contextPool = contextPool;
+        this.scriptSourceCache = scriptSourceCache;
+        this.scriptResultCache = scriptResultCache;
+        this.rowCache = rowCache;
+        this.singleFlight = singleFlight;
+        this.replicaRouter = replicaRouter;
+        this.scriptScheduler = scriptScheduler;
+        this.scriptProfiler = scriptProfiler;
+        this.tenantResourceGovernor = tenantResourceGovernor;
+        this.engine = engine;
+        this.meterRegistry = meterRegistry;
+        this.maxBatchSize = maxBatchSize;
+        this.paramProxies = paramProxies;
+        this.dbIoExecutor = dbIoExecutor;
+        this.maxConcurrentQueriesPerScript = maxConcurrentQueriesPerScript;
+        this.daoSettings = new DaoSettings(maxRows, fetchSize, compactRows);
     }
 
     @Override
     public ExecutionResult executeScript(ExecutionRequest request) {
 
-        var scriptEngine = scriptEngineManager.getEngineByName("graal.js");
-        if (scriptEngine == null) {
-            throw new ProcedureExecutionException("GraalVM JavaScript engine not found");
-        }
-
         Instant startTime = Instant.now();
         String requestId = request.getRequestId() != null ? request.getRequestId() : UUID.randomUUID().toString();
         String tenantId = (String) request.getHeaders().get("tenantId");
@@ -52,35 +120,84 @@ public class JavaScriptExecutorService implements ScriptExecutionService {
 
         log.info("Executing script for tenant: {}", tenantId);
 
+        ExecutionProfile profile = scriptProfiler.start(Boolean.TRUE.equals(request.getProfile()));
+        TenantPermit permit = null;
         try{
-            //Разрешает JavaScript коду вызывать Java методы
-            scriptEngine.getContext().setAttribute("polyglot.js.allowHostAccess", true, ScriptContext.ENGINE_SCOPE);
-            //Запрещает JavaScript коду создавать новые Java объекты
-            scriptEngine.getContext().setAttribute("polyglot.js.allowHostClassLookup", false, ScriptContext.ENGINE_SCOPE);
+            CachedScript script = scriptSourceCache.get(request.getScript());
 
-            // Создаем DatabaseAccessor для доступа к БД с изоляцией по tenant
-            DatabaseAccessor dbAccessor = new DatabaseAccessor(tenantId, jdbcTemplate);
-            scriptEngine.put("DB", dbAccessor);
+            // Кеш результатов: при попадании скрипт не выполняется и не занимает бюджет тенанта
+            int cacheTtlSeconds = scriptResultCache.effectiveTtlSeconds(request.getCacheTtlSeconds(), script.cacheTtlSeconds());
+            ScriptResultCache.Key cacheKey = cacheTtlSeconds > 0
+                    ? scriptResultCache.key(tenantId, script.hash(), request.getParams())
+                    : null;
+            if (cacheKey != null) {
+                ScriptResultCache.Entry cached = scriptResultCache.get(cacheKey);
+                if (cached != null) {
+                    Instant endTime = Instant.now();
+                    Long executionTime = Duration.between(startTime, endTime).toMillis();
+                    log.debug("Result cache hit for script {} (tenant: {})", script.hash(), tenantId);
+                    saveLog(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.SUCCESS, null);
 
-            if(request.getParams() != null){
-                request.getParams().forEach(scriptEngine::put);
+                    return ExecutionResult.builder()
+                            .requestId(requestId)
+                            .result(cached.result())
+                            .status(ExecutionResult.ExecutionStatus.SUCCESS)
+                            .executionTime(executionTime)
+                            .startTime(startTime)
+                            .endTime(endTime)
+                            .build();
+                }
             }
+            long tenantVersion = scriptResultCache.tenantVersion(tenantId);
+
+            // Бюджет тенанта: слоты выполнения и CPU-квота
+            permit = tenantResourceGovernor.admit(tenantId);
+            // Таймаут тенанта, но не дольше, чем отправитель ждет ответ
+            long timeoutMillis = timeoutMillis(permit.getBudget().getTimeoutSeconds(), request.getDeadline());
 
-            Future<Object> future = scriptExecutor.submit(() -> scriptEngine.eval(request.getScript()));
+            // Создаем DatabaseAccessor для доступа к БД с изоляцией по tenant
+            // Запросы в БД останавливаются вместе со скриптом
+            JdbcTemplate jdbcTemplate = new DeadlineJdbcTemplate(tenantConnections.jdbcTemplate(tenantId).getDataSource(),
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+            DatabaseAccessor dbAccessor = new DatabaseAccessor(tenantId, jdbcTemplate,
+                    new ScriptEventLoop(dbIoExecutor, maxConcurrentQueriesPerScript), scriptResultCache, rowCache, singleFlight,
+                    new ReadRoute(jdbcTemplate, replicaRouter), profile, daoSettings);
+
+            ScriptCancellation cancellation = new ScriptCancellation();
+            TenantPermit tenantPermit = permit;
+            long submittedAt = System.nanoTime();
+            // Слот тенанта освобождает задача, когда скрипт завершится, а не поток, переставший ждать.
+            // Профиль записывает тоже задача: после таймаута вызывающего скрипт еще дорабатывает
+            Future<Object> future = scriptScheduler.submit(script.hash(), tenantPermit.handOff(() -> {
+                profile.queueWait(System.nanoTime() - submittedAt);
+                try {
+                    return evaluate(cancellation, tenantId, script.source(), dbAccessor, request);
+                } finally {
+                    scriptProfiler.record(script.hash(), profile);
+                }
+            }));
             Object result;
             try {
-                result = future.get(SCRIPT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
             } catch (TimeoutException e) {
+                // Прерываем выполнение внутри GraalJS, чтобы освободить воркер и CPU
+                cancellation.cancel();
                 future.cancel(true);
-                throw new RuntimeException("Script execution timeout after " + SCRIPT_TIMEOUT_SECONDS + " seconds");
+                killedScripts(tenantId, isExpired(request.getDeadline()) ? "deadline" : "timeout").increment();
+                throw new RuntimeException("Script execution timeout after " + timeoutMillis + " ms");
+            }
+
+            // Скрипт, изменивший данные, не детерминирован: его результат не кешируется
+            if (cacheKey != null && !dbAccessor.isWrote()) {
+                scriptResultCache.put(cacheKey, result, cacheTtlSeconds, dbAccessor.tablesRead(), tenantVersion);
             }
 
             Instant endTime = Instant.now();
             Long executionTime = Duration.between(startTime, endTime).toMillis();
 
 
-            loggingService.saveLogAsync(request, startTime, endTime, executionTime,
-                   ExecutionResult.ExecutionStatus.SUCCESS, null);
+            saveLog(request, startTime, endTime, executionTime,
+                   ExecutionResult.ExecutionStatus.SUCCESS, null, profile);
 
             return ExecutionResult.builder()
                     .requestId(requestId)
@@ -91,14 +208,33 @@ public class JavaScriptExecutorService implements ScriptExecutionService {
                     .endTime(endTime)
                     .build();
 
+        } catch (ScriptRejectedException | TenantThrottledException e) {
+            Instant endTime = Instant.now();
+            Long executionTime = Duration.between(startTime, endTime).toMillis();
+
+            log.warn("SCRIPT_REJECTED - RequestId: {} - {}", requestId, e.getMessage());
+            saveLog(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, e.getMessage());
+
+            return ExecutionResult.builder()
+                    .requestId(requestId)
+                    .errorMessage(e.getMessage())
+                    .status(ExecutionResult.ExecutionStatus.ERROR)
+                    .executionTime(executionTime)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .build();
         } catch (ExecutionException e) {
             Instant endTime = Instant.now();
             Long executionTime = Duration.between(startTime, endTime).toMillis();
             String errorMsg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
 
+            if (e.getCause() instanceof PolyglotException pe && pe.isResourceExhausted()) {
+                killedScripts(tenantId, "statement-limit").increment();
+            }
+
             log.error("SCRIPT_ERROR - RequestId: {} - {} - Script failed in {}ms at {}",
                 requestId, errorMsg, executionTime, endTime);
-            loggingService.saveLogAsync(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, errorMsg);
+            saveLog(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, errorMsg, profile);
 
             return ExecutionResult.builder()
                     .requestId(requestId)
@@ -114,7 +250,7 @@ public class JavaScriptExecutorService implements ScriptExecutionService {
             Long executionTime = Duration.between(startTime, endTime).toMillis();
 
             log.error("SCRIPT_INTERRUPTED - RequestId: {} - Script interrupted in {}ms", requestId, executionTime);
-            loggingService.saveLogAsync(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, "Script execution interrupted");
+            saveLog(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, "Script execution interrupted");
 
             return ExecutionResult.builder()
                     .requestId(requestId)
@@ -130,7 +266,7 @@ public class JavaScriptExecutorService implements ScriptExecutionService {
 
             log.error("SCRIPT_ERROR - RequestId: {} - {} - Script failed in {}ms at {}",
                 requestId,e.getMessage(), executionTime, endTime);
-            loggingService.saveLogAsync(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, e.getMessage());
+            saveLog(request, startTime, endTime, executionTime, ExecutionResult.ExecutionStatus.ERROR, e.getMessage(), profile);
 
             return ExecutionResult.builder()
                     .requestId(requestId)
@@ -140,25 +276,396 @@ public class JavaScriptExecutorService implements ScriptExecutionService {
                     .startTime(startTime)
                     .endTime(endTime)
                     .build();
+        } finally {
+            // Слот освобождается здесь, только если задача не запускалась
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
+    /**
+     * Выполняет один скрипт для списка наборов параметров: один разбор, один Context,
+     * одна запись в журнал на весь пакет. Ошибка элемента не прерывает пакет.
+     * Таймаут тенанта действует на элемент: пакет останавливается, если за timeoutSeconds
+     * не завершился ни один элемент.
+     */
+    @Override
+    public List<ExecutionResult> executeScriptBatch(BatchExecutionRequest request) {
 
+        Instant startTime = Instant.now();
+        String requestId = request.getRequestId() != null ? request.getRequestId() : UUID.randomUUID().toString();
+        String tenantId = (String) request.getHeaders().get("tenantId");
+        List<Map<String, Object>> parameterSets = request.getParameterSets() != null ? request.getParameterSets() : List.of();
 
+        if (tenantId == null || tenantId.isEmpty()) {
+            throw new SecurityException("Tenant ID is required but not provided");
+        }
+        if (parameterSets.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + parameterSets.size() + " exceeds limit " + maxBatchSize);
+        }
 
+        log.info("Executing script batch of {} items for tenant: {}", parameterSets.size(), tenantId);
 
-    @Override
-    public boolean validateScript(String script) {
-        var scriptEngine = scriptEngineManager.getEngineByName("graal.js");
-        if (scriptEngine == null) {
-            throw new ProcedureExecutionException("GraalVM JavaScript engine not found");
+        // Профиль пакета: время всех элементов суммируется
+        ExecutionProfile profile = scriptProfiler.start(Boolean.TRUE.equals(request.getProfile()));
+        List<ExecutionResult> results = null;
+        String batchError = null;
+        TenantPermit permit = null;
+        try {
+            permit = tenantResourceGovernor.admit(tenantId);
+            long timeoutSeconds = permit.getBudget().getTimeoutSeconds();
+            Long deadline = request.getDeadline();
+            // Срок запроса мог истечь, пока пакет ждал в очереди
+            checkDeadline(deadline);
+
+            // Таймаут тенанта действует на элемент пакета — и на каждый запрос в БД
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(tenantConnections.jdbcTemplate(tenantId).getDataSource());
+            jdbcTemplate.setQueryTimeout((int) timeoutSeconds);
+            DatabaseAccessor dbAccessor = new DatabaseAccessor(tenantId, jdbcTemplate,
+                    new ScriptEventLoop(dbIoExecutor, maxConcurrentQueriesPerScript), scriptResultCache, rowCache, singleFlight,
+                    new ReadRoute(jdbcTemplate, replicaRouter), profile, daoSettings);
+            CachedScript script = scriptSourceCache.get(request.getScript());
+            // Пакет учитывается отдельно от одиночных выполнений того же скрипта
+            String scriptHash = "batch:" + script.hash();
+
+            ScriptCancellation cancellation = new ScriptCancellation();
+            TenantPermit tenantPermit = permit;
+            long submittedAt = System.nanoTime();
+            // Начало текущего элемента; до первого элемента — момент постановки в очередь
+            AtomicLong itemStartedAt = new AtomicLong(submittedAt);
+            Future<List<ExecutionResult>> future = scriptScheduler.submit(scriptHash, tenantPermit.handOff(() -> {
+                profile.queueWait(System.nanoTime() - submittedAt);
+                try {
+                    return evaluateBatch(cancellation, tenantId, script.source(), dbAccessor, request, requestId,
+                            parameterSets, itemStartedAt);
+                } finally {
+                    scriptProfiler.record(scriptHash, profile);
+                }
+            }));
+
+            results = awaitBatch(future, cancellation, itemStartedAt, TimeUnit.SECONDS.toNanos(timeoutSeconds), deadline,
+                    reason -> killedScripts(tenantId, reason).increment());
+        } catch (ScriptRejectedException | TenantThrottledException e) {
+            log.warn("SCRIPT_REJECTED - RequestId: {} - {}", requestId, e.getMessage());
+            batchError = e.getMessage();
+        } catch (ExecutionException e) {
+            batchError = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            log.error("SCRIPT_ERROR - RequestId: {} - batch failed: {}", requestId, batchError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batchError = "Script execution interrupted";
+            log.error("SCRIPT_INTERRUPTED - RequestId: {} - batch interrupted", requestId);
+        } catch (Exception e) {
+            batchError = "Error: " + e.getMessage();
+            log.error("SCRIPT_ERROR - RequestId: {} - batch failed: {}", requestId, e.getMessage());
+        } finally {
+            // Слот освобождается здесь, только если задача не запускалась
+            if (permit != null) {
+                permit.close();
+            }
         }
-        log.info("ScriptEngine found: {}",scriptEngine.getClass().getName());
 
-        try{
-            CompiledScript compiledScript = ((Compilable) scriptEngine).compile(script);
+        Instant endTime = Instant.now();
+        Long executionTime = Duration.between(startTime, endTime).toMillis();
+        if (batchError != null) {
+            results = new ArrayList<>(parameterSets.size());
+            for (int i = 0; i < parameterSets.size(); i++) {
+                results.add(itemResult(requestId + "#" + i, startTime, null, batchError));
+            }
+        }
+
+        long failed = results.stream().filter(r -> r.getStatus() == ExecutionResult.ExecutionStatus.ERROR).count();
+        ExecutionRequest logRequest = ExecutionRequest.builder()
+                .script(request.getScript())
+                .params(Map.of("batchSize", parameterSets.size(), "failed", failed))
+                .headers(request.getHeaders())
+                .requestId(requestId)
+                .build();
+        saveLog(logRequest, startTime, endTime, executionTime,
+                failed == 0 ? ExecutionResult.ExecutionStatus.SUCCESS : ExecutionResult.ExecutionStatus.ERROR,
+                batchError != null ? batchError : failed == 0 ? null : failed + " of " + parameterSets.size() + " items failed",
+                profile);
+
+        return results;
+    }
+
+    /**
+     * Выполняет скрипт в Context из пула. Вызывается в потоке ScriptScheduler.
+     */
+    private Object evaluate(ScriptCancellation cancellation, String tenantId, Source source,
+                            DatabaseAccessor dbAccessor, ExecutionRequest request) throws InterruptedException {
+        PooledContext pooled = contextPool.acquire(tenantId);
+        boolean reusable = false;
+        try {
+            Object result;
+            try {
+                cancellation.attach(pooled);
+                result = evaluateIn(pooled, source, dbAccessor, request);
+            } catch (PolyglotException e) {
+                if (!e.isSyntaxError() || pooled.getUseCount() <= 1) {
+                    reusable = !e.isCancelled() && !e.isInternalError();
+                    throw e;
+                }
+                // Повторное объявление let/const в переиспользованном Context — выполняем в новом
+                log.debug("Syntax error in reused context, retrying in a fresh one: {}", e.getMessage());
+                cancellation.detach();
+                contextPool.release(pooled, false);
+                pooled = null;
+                pooled = contextPool.acquireFresh(tenantId);
+                cancellation.attach(pooled);
+                result = evaluateIn(pooled, source, dbAccessor, request);
+            }
+            reusable = true;
+            return result;
+        } finally {
+            cancellation.detach();
+            // Курсоры stream(), не дочитанные скриптом, держат соединения пула
+            dbAccessor.close();
+            if (pooled != null) {
+                // Context, закрытый через cancel, не возвращается в пул
+                contextPool.release(pooled, reusable && !cancellation.isCancelled());
+            }
+        }
+    }
+
+    /**
+     * Выполняет элементы пакета в одном Context, очищая его между элементами.
+     * Если скрипт объявляет let/const на верхнем уровне, повторное выполнение в том же
+     * Context дает SyntaxError — тогда каждый следующий элемент получает новый Context.
+     */
+    private List<ExecutionResult> evaluateBatch(ScriptCancellation cancellation, String tenantId, Source source,
+                                                DatabaseAccessor dbAccessor, BatchExecutionRequest request, String requestId,
+                                                List<Map<String, Object>> parameterSets, AtomicLong itemStartedAt) throws InterruptedException {
+        List<ExecutionResult> results = new ArrayList<>(parameterSets.size());
+        PooledContext pooled = contextPool.acquire(tenantId);
+        boolean freshPerItem = false;
+        try {
+            for (int i = 0; i < parameterSets.size(); i++) {
+                itemStartedAt.set(System.nanoTime());
+                Instant itemStart = Instant.now();
+                String itemId = requestId + "#" + i;
+                if (cancellation.isCancelled()) {
+                    results.add(itemResult(itemId, itemStart, null, "Batch cancelled after timeout"));
+                    continue;
+                }
+                ExecutionRequest item = ExecutionRequest.builder()
+                        .script(request.getScript())
+                        .params(parameterSets.get(i))
+                        .headers(request.getHeaders())
+                        .requestId(itemId)
+                        .build();
+                try {
+                    boolean reused = i > 0 || pooled.getUseCount() > 1;
+                    if (i > 0 && (freshPerItem || !contextPool.recycle(pooled))) {
+                        contextPool.release(pooled, false);
+                        pooled = null;
+                        pooled = contextPool.acquireFresh(tenantId);
+                        reused = false;
+                    }
+                    Object result;
+                    try {
+                        cancellation.attach(pooled);
+                        result = evaluateIn(pooled, source, dbAccessor, item);
+                    } catch (PolyglotException e) {
+                        if (!e.isSyntaxError() || !reused) {
+                            throw e;
+                        }
+                        freshPerItem = true;
+                        cancellation.detach();
+                        contextPool.release(pooled, false);
+                        pooled = null;
+                        pooled = contextPool.acquireFresh(tenantId);
+                        cancellation.attach(pooled);
+                        result = evaluateIn(pooled, source, dbAccessor, item);
+                    } finally {
+                        cancellation.detach();
+                        dbAccessor.close();
+                    }
+                    results.add(itemResult(itemId, itemStart, result, null));
+                } catch (PolyglotException e) {
+                    if (e.isResourceExhausted()) {
+                        killedScripts(tenantId, "statement-limit").increment();
+                    }
+                    if (e.isCancelled() || e.isInternalError()) {
+                        // Context закрыт движком, следующему элементу нужен новый
+                        contextPool.release(pooled, false);
+                        pooled = null;
+                        if (!cancellation.isCancelled()) {
+                            pooled = contextPool.acquireFresh(tenantId);
+                        }
+                    }
+                    String error = e.isCancelled() && cancellation.isCancelled() ? "Script execution timeout" : e.getMessage();
+                    results.add(itemResult(itemId, itemStart, null, error));
+                } catch (CancellationException e) {
+                    results.add(itemResult(itemId, itemStart, null, "Batch cancelled after timeout"));
+                } catch (IllegalStateException e) {
+                    // Отклоненный Promise результата или нет свободного Context
+                    results.add(itemResult(itemId, itemStart, null, e.getMessage()));
+                }
+            }
+            return results;
+        } finally {
+            if (pooled != null) {
+                contextPool.release(pooled, !cancellation.isCancelled());
+            }
+        }
+    }
+
+    private ExecutionResult itemResult(String itemId, Instant itemStart, Object result, String errorMessage) {
+        Instant itemEnd = Instant.now();
+        return ExecutionResult.builder()
+                .requestId(itemId)
+                .result(result)
+                .errorMessage(errorMessage)
+                .status(errorMessage == null ? ExecutionResult.ExecutionStatus.SUCCESS : ExecutionResult.ExecutionStatus.ERROR)
+                .executionTime(Duration.between(itemStart, itemEnd).toMillis())
+                .startTime(itemStart)
+                .endTime(itemEnd)
+                .build();
+    }
+
+    private void saveLog(ExecutionRequest request, Instant startTime, Instant endTime, long ms,
+                         ExecutionResult.ExecutionStatus status, String errorMessage) {
+        saveLog(request, startTime, endTime, ms, status, errorMessage, ExecutionProfile.DISABLED);
+    }
+
+    private void saveLog(ExecutionRequest request, Instant startTime, Instant endTime, long ms,
+                         ExecutionResult.ExecutionStatus status, String errorMessage, ExecutionProfile profile) {
+        // Выполнения прогрева не пишутся в журнал
+        if (Boolean.TRUE.equals(request.getHeaders().get(StartupWarmupRunner.WARMUP_HEADER))) {
+            return;
+        }
+        loggingService.saveLogAsync(request, startTime, endTime, ms, status, errorMessage, profile);
+    }
+
+    /**
+     * Таймаут выполнения с учетом deadline запроса. Если срок уже прошел, скрипт не запускается.
+     */
+    private static long timeoutMillis(long timeoutSeconds, Long deadline) {
+        long timeoutMillis = remainingWait(timeoutSeconds, deadline);
+        if (timeoutMillis <= 0) {
+            throw new RuntimeException("Request deadline expired before execution");
+        }
+        return timeoutMillis;
+    }
+
+    /**
+     * Ждет результат пакета. Таймаут тенанта действует на каждый элемент: отсчет идет от начала
+     * текущего элемента (itemStartedAt), и пакет отменяется, как только элемент его превысил
+     * или истек срок запроса. После отмены воркеру дается еще один таймаут на выход из хост-вызова.
+     *
+     * @param onKill вызывается с причиной отмены: "timeout" или "deadline"
+     */
+    static <T> T awaitBatch(Future<T> future, ScriptCancellation cancellation, AtomicLong itemStartedAt,
+                            long itemTimeoutNanos, Long deadline, Consumer<String> onKill)
+            throws ExecutionException, InterruptedException {
+        while (true) {
+            long waitNanos;
+            if (cancellation.isCancelled()) {
+                waitNanos = itemTimeoutNanos;
+            } else {
+                waitNanos = itemStartedAt.get() + itemTimeoutNanos - System.nanoTime();
+                if (deadline != null) {
+                    waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(deadline - System.currentTimeMillis()));
+                }
+            }
+            try {
+                return future.get(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (cancellation.isCancelled()) {
+                    // Воркер не вышел из хост-вызова после отмены
+                    future.cancel(true);
+                    throw new RuntimeException("Script batch timeout after "
+                            + TimeUnit.NANOSECONDS.toSeconds(itemTimeoutNanos) + " seconds");
+                }
+                if (isExpired(deadline)) {
+                    // Ответ уже никто не ждет: оставшиеся элементы завершатся с ошибкой
+                    cancellation.cancel();
+                    onKill.accept("deadline");
+                } else if (System.nanoTime() - itemStartedAt.get() >= itemTimeoutNanos) {
+                    // Текущий элемент превысил таймаут: оставшиеся элементы завершатся с ошибкой
+                    cancellation.cancel();
+                    onKill.accept("timeout");
+                }
+                // Иначе начался следующий элемент: ждем до его собственного таймаута
+            }
+        }
+    }
+
+    private static void checkDeadline(Long deadline) {
+        if (isExpired(deadline)) {
+            throw new RuntimeException("Request deadline expired before execution");
+        }
+    }
+
+    private static long remainingWait(long timeoutSeconds, Long deadline) {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        return deadline == null ? timeoutMillis : Math.min(timeoutMillis, deadline - System.currentTimeMillis());
+    }
+
+    private static boolean isExpired(Long deadline) {
+        return deadline != null && deadline <= System.currentTimeMillis();
+    }
+
+    private Counter killedScripts(String tenantId, String reason) {
+        return Counter.builder("blockly.script.killed")
+                .description("Скрипты, принудительно остановленные движком")
+                .tag("tenant", tenantId)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Object evaluateIn(PooledContext pooled, Source source, DatabaseAccessor dbAccessor, ExecutionRequest request)
+            throws InterruptedException {
+        org.graalvm.polyglot.Value bindings = pooled.bindings();
+        bindings.putMember("DB", dbAccessor);
+
+        if(request.getParams() != null){
+            // Map/List передаются без копирования: host-объектами или представлениями ParamProxies
+            request.getParams().forEach((name, value) -> bindings.putMember(name, paramProxies ? ParamProxies.wrap(value) : value));
+        }
+
+        ExecutionProfile profile = dbAccessor.getProfile();
+        if (profile.isEnabled()) {
+            return evaluateProfiled(pooled, source, dbAccessor, profile);
+        }
+
+        org.graalvm.polyglot.Value result = pooled.getContext().eval(source);
+        // Разрешаем Promise асинхронных запросов в этом же потоке
+        return ValueConverter.toJava(dbAccessor.getEventLoop().settle(result));
+    }
+
+    /**
+     * То же, что eval, но разбор и выполнение замеряются отдельно. Разбор уже
+     * закешированного в Engine скрипта занимает микросекунды.
+     */
+    private Object evaluateProfiled(PooledContext pooled, Source source, DatabaseAccessor dbAccessor, ExecutionProfile profile)
+            throws InterruptedException {
+        profile.scriptThread();
+        long parseStart = System.nanoTime();
+        org.graalvm.polyglot.Value parsed = pooled.getContext().parse(source);
+        long evalStart = System.nanoTime();
+        profile.compile(evalStart - parseStart);
+
+        long cpuStart = ExecutionProfile.currentThreadCpuTime();
+        try {
+            org.graalvm.polyglot.Value result = parsed.execute();
+            return ValueConverter.toJava(dbAccessor.getEventLoop().settle(result));
+        } finally {
+            long cpuEnd = ExecutionProfile.currentThreadCpuTime();
+            profile.eval(System.nanoTime() - evalStart, cpuStart >= 0 && cpuEnd >= 0 ? cpuEnd - cpuStart : -1);
+            profile.asyncWait(dbAccessor.getEventLoop().waitedNanos());
+        }
+    }
+
+    @Override
+    public boolean validateScript(String script) {
+        // Разбор через общий Engine: результат попадает в кеш и используется при выполнении
+        try (Context context = Context.newBuilder("js").engine(engine).build()) {
+            context.parse(scriptSourceCache.get(script).source());
             return true;
-        } catch (ScriptException e) {
+        } catch (PolyglotException e) {
             log.error("Script validation failed: {}", e.getMessage());
             return false;
         }
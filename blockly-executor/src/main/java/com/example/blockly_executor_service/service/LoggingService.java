@@ -3,36 +3,40 @@ package com.example.blockly_executor_service.service;
 import com.example.blockly_executor_service.model.ExecutionRequest;
 import com.example.blockly_executor_service.model.ExecutionResult;
 import com.example.blockly_executor_service.model.ScriptExecutionLog;
-import com.example.blockly_executor_service.repository.ScriptExecutionLogRepository;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.Instant;
 
 @Slf4j
 @Service
 public class LoggingService {
 
-    private final ScriptExecutionLogRepository scriptExecutionLogRepository;
+    private static final String INSERT_LOG = "INSERT INTO blockly_schema.script_execution_log"
+            + " (request_id, script_preview, parameters_preview, headers_preview, status, error_message,"
+            + " start_time, end_time, execution_time, queue_wait_ms, compile_ms, js_ms, js_cpu_ms, db_ms, db_breakdown)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Отдельный пул журнала (DataSourceConfig): запись не конкурирует с запросами скриптов
     private final JdbcTemplate jdbcTemplate;
 
-    public LoggingService(ScriptExecutionLogRepository scriptExecutionLogRepository, JdbcTemplate jdbcTemplate) {
-        this.scriptExecutionLogRepository = scriptExecutionLogRepository;
+    public LoggingService(@Qualifier("logJdbcTemplate") JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
     @Async("taskExecutor")
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void saveLogAsync(ExecutionRequest request,
                              Instant startTime,
                              Instant endTime,
                              long ms,
                              ExecutionResult.ExecutionStatus status,
-                             String errorMessage) {
+                             String errorMessage,
+                             ExecutionProfile profile) {
         log.info("DB_WRITE_START - RequestId: {}", request.getRequestId());
         try {
             // Имитируем медленную работу с БД через pg_sleep
@@ -48,8 +52,16 @@ public class LoggingService {
             executionLog.setStartTime(startTime);
             executionLog.setEndTime(endTime);
             executionLog.setExecutionTime(ms);
+            if (profile.isEnabled()) {
+                executionLog.setQueueWaitMs(profile.queueWaitMillis());
+                executionLog.setCompileMs(profile.compileMillis());
+                executionLog.setJsMs(profile.jsMillis());
+                executionLog.setJsCpuMs(profile.jsCpuMillis());
+                executionLog.setDbMs(profile.dbMillis());
+                executionLog.setDbBreakdown(preview(profile.dbBreakdown(), 2000));
+            }
 
-            scriptExecutionLogRepository.save(executionLog);
+            insert(executionLog);
 
             log.debug("Лог успешно сохранен для requestId: {}", request.getRequestId());
 
@@ -60,6 +72,32 @@ public class LoggingService {
         log.info("DB_SAVE_END - RequestId: {}", request.getRequestId());
     }
 
+    /**
+     * Одна строка журнала в автокоммите: JPA и его транзакция заняли бы соединение основного пула.
+     */
+    private void insert(ScriptExecutionLog executionLog) {
+        jdbcTemplate.update(INSERT_LOG,
+                executionLog.getRequestId(),
+                executionLog.getScriptPreview(),
+                executionLog.getParametersPreview(),
+                executionLog.getHeadersPreview(),
+                executionLog.getStatus() != null ? executionLog.getStatus().name() : null,
+                executionLog.getErrorMessage(),
+                timestamp(executionLog.getStartTime()),
+                timestamp(executionLog.getEndTime()),
+                executionLog.getExecutionTime(),
+                executionLog.getQueueWaitMs(),
+                executionLog.getCompileMs(),
+                executionLog.getJsMs(),
+                executionLog.getJsCpuMs(),
+                executionLog.getDbMs(),
+                executionLog.getDbBreakdown());
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
     private String preview(Object obj, int max) {
         if (obj == null) {
             return null;
@@ -1,10 +1,14 @@
 package com.example.blockly_executor_service.service;
 
+import com.example.blockly_executor_service.model.BatchExecutionRequest;
 import com.example.blockly_executor_service.model.ExecutionRequest;
 import com.example.blockly_executor_service.model.ExecutionResult;
 
+import java.util.List;
+
 public interface ScriptExecutionService {
     ExecutionResult executeScript(ExecutionRequest request);
+    List<ExecutionResult> executeScriptBatch(BatchExecutionRequest request);
     boolean validateScript(String script);
 
 }
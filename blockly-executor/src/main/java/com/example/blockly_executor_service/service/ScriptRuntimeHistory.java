@@ -0,0 +1,140 @@
+package com.example.blockly_executor_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * История времени выполнения по хешу скрипта: EWMA и гистограмма с логарифмическими
+ * корзинами для оценки перцентиля. Гистограмма затухает (счетчики делятся пополам),
+ * поэтому скрипт, который стал быстрее, со временем возвращается в быструю полосу.
+ *
+ * Число отслеживаемых скриптов ограничено, вытесняются давно не выполнявшиеся (LRU).
+ */
+@Component
+public class ScriptRuntimeHistory {
+
+    /** Верхние границы корзин гистограммы, мс. Последняя корзина — без границы. */
+    static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+    private static final int DECAY_AFTER_SAMPLES = 256;
+
+    public enum Lane {
+        FAST, SLOW;
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final long slowThresholdMs;
+    private final double percentile;
+    private final double alpha;
+    private final int maxEntries;
+
+    private final LinkedHashMap<String, RuntimeStats> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RuntimeStats> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public ScriptRuntimeHistory(MeterRegistry meterRegistry,
+                                @Value("${blockly.executor.scheduler.lanes.slow-threshold-ms:1000}") long slowThresholdMs,
+                                @Value("${blockly.executor.scheduler.lanes.percentile:0.9}") double percentile,
+                                @Value("${blockly.executor.scheduler.lanes.ewma-alpha:0.2}") double alpha,
+                                @Value("${blockly.executor.scheduler.lanes.max-tracked-scripts:10000}") int maxEntries) {
+        this.slowThresholdMs = slowThresholdMs;
+        this.percentile = percentile;
+        this.alpha = alpha;
+        this.maxEntries = maxEntries;
+
+        Gauge.builder("blockly.scheduler.history.size", this, ScriptRuntimeHistory::size)
+                .description("Скрипты с известной историей выполнения")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Полоса для скрипта. Скрипты без истории идут в быструю полосу.
+     */
+    public Lane classify(String scriptHash) {
+        RuntimeStats stats;
+        synchronized (this) {
+            stats = entries.get(scriptHash);
+        }
+        if (stats == null) {
+            return Lane.FAST;
+        }
+        synchronized (stats) {
+            return stats.ewmaMs > slowThresholdMs || stats.percentileMs(percentile) > slowThresholdMs
+                    ? Lane.SLOW : Lane.FAST;
+        }
+    }
+
+    public void record(String scriptHash, long elapsedNanos) {
+        RuntimeStats stats;
+        synchronized (this) {
+            stats = entries.computeIfAbsent(scriptHash, k -> new RuntimeStats());
+        }
+        double elapsedMs = elapsedNanos / 1_000_000.0;
+        synchronized (stats) {
+            stats.add(elapsedMs, alpha);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static final class RuntimeStats {
+
+        private final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+        private long samples;
+        private double ewmaMs;
+
+        void add(double elapsedMs, double alpha) {
+            ewmaMs = samples == 0 ? elapsedMs : alpha * elapsedMs + (1 - alpha) * ewmaMs;
+            buckets[bucket(elapsedMs)]++;
+            if (++samples >= DECAY_AFTER_SAMPLES) {
+                samples = 0;
+                for (int i = 0; i < buckets.length; i++) {
+                    samples += buckets[i] >>= 1;
+                }
+            }
+        }
+
+        /**
+         * Оценка перцентиля — верхняя граница корзины, в которую он попадает.
+         */
+        long percentileMs(double q) {
+            long total = 0;
+            for (long count : buckets) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return BUCKET_BOUNDS_MS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private static int bucket(double elapsedMs) {
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                if (elapsedMs <= BUCKET_BOUNDS_MS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MS.length;
+        }
+    }
+}
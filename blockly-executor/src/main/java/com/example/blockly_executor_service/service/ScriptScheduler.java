@@ -0,0 +1,214 @@
+package com.example.blockly_executor_service.service;
+
+import com.example.blockly_executor_service.exception.ScriptRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import com.example.blockly_executor_service.service.ScriptRuntimeHistory.Lane;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.common.exception.ExceptionMessages.SCRIPT_REJECTED;
+
+/**
+ * Планировщик выполнения скриптов поверх scriptTaskExecutor.
+ * Ограничивает число ожидающих скриптов и публикует метрики глубины очереди,
+ * времени ожидания и активных воркеров.
+ *
+ * Скрипты делятся на две полосы по истории времени выполнения (ScriptRuntimeHistory):
+ * быстрая (scriptTaskExecutor) и медленная (slowScriptTaskExecutor) со своими воркерами
+ * и очередями, поэтому тяжелые отчеты не задерживают короткие интерактивные скрипты.
+ *
+ * В режиме виртуальных потоков число одновременно выполняемых скриптов
+ * ограничивается семафором: ожидающие скрипты — это виртуальные потоки,
+ * заблокированные на нем, а не OS-потоки.
+ */
+@Slf4j
+@Component
+public class ScriptScheduler {
+
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+    private final ScriptRuntimeHistory runtimeHistory;
+
+    @Autowired
+    public ScriptScheduler(@Qualifier("scriptTaskExecutor") AsyncTaskExecutor executor,
+                           @Qualifier("slowScriptTaskExecutor") AsyncTaskExecutor slowExecutor,
+                           ScriptRuntimeHistory runtimeHistory,
+                           MeterRegistry meterRegistry,
+                           @Value("${blockly.executor.scheduler.workers:16}") int workers,
+                           @Value("${blockly.executor.scheduler.queue-capacity:200}") int queueCapacity,
+                           @Value("${blockly.executor.scheduler.lanes.enabled:true}") boolean lanesEnabled,
+                           @Value("${blockly.executor.scheduler.lanes.slow.workers:4}") int slowWorkers,
+                           @Value("${blockly.executor.scheduler.lanes.slow.queue-capacity:50}") int slowQueueCapacity) {
+        this.runtimeHistory = lanesEnabled ? runtimeHistory : null;
+        lanes.put(Lane.FAST, new LaneExecutor(Lane.FAST, executor, meterRegistry, workers, queueCapacity));
+        if (lanesEnabled) {
+            lanes.put(Lane.SLOW, new LaneExecutor(Lane.SLOW, slowExecutor, meterRegistry, slowWorkers, slowQueueCapacity));
+        }
+    }
+
+    /**
+     * Одна полоса без учета истории выполнения.
+     */
+    public ScriptScheduler(AsyncTaskExecutor executor, MeterRegistry meterRegistry, int workers, int queueCapacity) {
+        this.runtimeHistory = null;
+        lanes.put(Lane.FAST, new LaneExecutor(Lane.FAST, executor, meterRegistry, workers, queueCapacity));
+    }
+
+    /**
+     * Ставит скрипт в быструю полосу. При переполнении бросает ScriptRejectedException.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return lanes.get(Lane.FAST).submit(task, null);
+    }
+
+    /**
+     * Ставит скрипт в полосу по его истории выполнения и записывает время этого выполнения.
+     * При переполнении полосы бросает ScriptRejectedException.
+     */
+    public <T> Future<T> submit(String scriptHash, Callable<T> task) {
+        if (runtimeHistory == null) {
+            return submit(task);
+        }
+        Lane lane = runtimeHistory.classify(scriptHash);
+        return lanes.get(lane).submit(task, scriptHash);
+    }
+
+    public int queueDepth() {
+        return lanes.values().stream().mapToInt(lane -> lane.queued.get()).sum();
+    }
+
+    public int activeCount() {
+        return lanes.values().stream().mapToInt(lane -> lane.active.get()).sum();
+    }
+
+    private final class LaneExecutor {
+
+        private final Lane lane;
+        private final AsyncTaskExecutor executor;
+        private final int queueCapacity;
+        private final Semaphore workerSlots;
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final Timer waitTimer;
+        private final Counter rejected;
+        private final Counter assigned;
+
+        LaneExecutor(Lane lane, AsyncTaskExecutor executor, MeterRegistry meterRegistry, int workers, int queueCapacity) {
+            this.lane = lane;
+            this.executor = executor;
+            this.queueCapacity = queueCapacity;
+            // ThreadPoolTaskExecutor сам ограничивает число воркеров
+            this.workerSlots = executor instanceof ThreadPoolTaskExecutor ? null : new Semaphore(workers, true);
+
+            this.waitTimer = Timer.builder("blockly.scheduler.wait")
+                    .description("Время ожидания скрипта в очереди")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("blockly.scheduler.rejected")
+                    .description("Скрипты, отклоненные из-за переполнения очереди")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            this.assigned = Counter.builder("blockly.scheduler.lane.assigned")
+                    .description("Скрипты, направленные в полосу")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            Gauge.builder("blockly.scheduler.queue.depth", queued, AtomicInteger::get)
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            Gauge.builder("blockly.scheduler.active", active, AtomicInteger::get)
+                    .description("Воркеры, выполняющие скрипты")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            Gauge.builder("blockly.scheduler.workers", () -> workers)
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+
+            log.info("Script scheduler lane {}: {} workers, queue capacity {}, executor {}",
+                    lane.tag(), workers, queueCapacity, executor.getClass().getSimpleName());
+        }
+
+        <T> Future<T> submit(Callable<T> task, String scriptHash) {
+            if (queued.incrementAndGet() > queueCapacity) {
+                queued.decrementAndGet();
+                throw reject(null);
+            }
+            assigned.increment();
+
+            long enqueuedAt = System.nanoTime();
+            AtomicBoolean started = new AtomicBoolean();
+            FutureTask<T> future = new FutureTask<>(() -> runTask(task, scriptHash, enqueuedAt, started)) {
+                @Override
+                protected void done() {
+                    // Задача отменена до запуска — убираем ее из счетчика очереди
+                    if (started.compareAndSet(false, true)) {
+                        queued.decrementAndGet();
+                    }
+                }
+            };
+            try {
+                executor.execute(future);
+                return future;
+            } catch (TaskRejectedException e) {
+                queued.decrementAndGet();
+                throw reject(e);
+            }
+        }
+
+        private <T> T runTask(Callable<T> task, String scriptHash, long enqueuedAt, AtomicBoolean started) throws Exception {
+            if (workerSlots != null) {
+                workerSlots.acquire();
+            }
+            if (!started.compareAndSet(false, true)) {
+                // Отменена, пока ждала слот
+                if (workerSlots != null) {
+                    workerSlots.release();
+                }
+                throw new CancellationException("Script was cancelled while queued");
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            long startedAt = System.nanoTime();
+            waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                return task.call();
+            } finally {
+                // Прерванные по таймауту выполнения тоже учитываются: это самые тяжелые скрипты
+                if (scriptHash != null) {
+                    runtimeHistory.record(scriptHash, System.nanoTime() - startedAt);
+                }
+                active.decrementAndGet();
+                if (workerSlots != null) {
+                    workerSlots.release();
+                }
+            }
+        }
+
+        private ScriptRejectedException reject(Exception cause) {
+            rejected.increment();
+            int depth = queued.get();
+            log.warn("Script rejected: {} lane saturated (active: {}, queued: {})", lane.tag(), active.get(), depth);
+            return new ScriptRejectedException(SCRIPT_REJECTED.formatted(depth), cause);
+        }
+    }
+}
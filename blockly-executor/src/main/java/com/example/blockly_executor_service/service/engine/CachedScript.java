@@ -0,0 +1,15 @@
+package com.example.blockly_executor_service.service.engine;
+
+import org.graalvm.polyglot.Source;
+
+/**
+ * Разобранный исходник скрипта и хеш его текста.
+ *
+ * @param cacheTtlSeconds TTL кеша результатов из аннотации скрипта (// @cache ttl=30), null — без аннотации
+ */
+public record CachedScript(
+        String hash,
+        Source source,
+        Integer cacheTtlSeconds
+) {
+}
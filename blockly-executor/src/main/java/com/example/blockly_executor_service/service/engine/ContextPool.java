@@ -0,0 +1,355 @@
+package com.example.blockly_executor_service.service.engine;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.ResourceLimits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограниченный пул заранее созданных polyglot Context поверх общего Engine.
+ *
+ * Context переиспользуется только тем же тенантом: между выполнениями глобальные
+ * переменные очищаются. При смене тенанта Context закрывается и создается заново,
+ * чтобы lexical-переменные (let/const) одного тенанта не были видны другому.
+ * Для тенантов с лимитом кучи Context создается с sandbox.MaxHeapMemory.
+ */
+@Slf4j
+@Component
+public class ContextPool {
+
+    private final Engine engine;
+    private final boolean enabled;
+    private final int maxSize;
+    private final int maxUsesPerContext;
+    private final long acquireTimeoutMillis;
+    private final ResourceLimits resourceLimits;
+    private final TenantBudgetProperties budgets;
+    private volatile boolean heapLimitSupported = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Deque<PooledContext> idle = new ArrayDeque<>();
+    private int total;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer resetTimer;
+    private final Counter intrinsicsModified;
+
+    public ContextPool(Engine engine,
+                       MeterRegistry meterRegistry,
+                       TenantBudgetProperties budgets,
+                       @Value("${blockly.executor.context-pool.enabled:true}") boolean enabled,
+                       @Value("${blockly.executor.context-pool.max-size:16}") int maxSize,
+                       @Value("${blockly.executor.context-pool.prewarm:4}") int prewarm,
+                       @Value("${blockly.executor.context-pool.max-uses-per-context:1000}") int maxUsesPerContext,
+                       @Value("${blockly.executor.context-pool.acquire-timeout-ms:5000}") long acquireTimeoutMillis,
+                       @Value("${blockly.executor.limits.statement-limit:0}") long statementLimit) {
+        this.engine = engine;
+        this.budgets = budgets;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.maxUsesPerContext = maxUsesPerContext;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        // Лимит операторов JS на одно выполнение; счетчик сбрасывается при возврате в пул.
+        // Один экземпляр ResourceLimits для всех Context общего Engine.
+        this.resourceLimits = statementLimit > 0
+                ? ResourceLimits.newBuilder().statementLimit(statementLimit, null).build()
+                : null;
+
+        this.hits = Counter.builder("blockly.context.pool.acquire")
+                .tag("result", "hit")
+                .description("Выдача готового Context из пула")
+                .register(meterRegistry);
+        this.misses = Counter.builder("blockly.context.pool.acquire")
+                .tag("result", "miss")
+                .description("Создание нового Context при выдаче")
+                .register(meterRegistry);
+        this.resetTimer = Timer.builder("blockly.context.pool.reset")
+                .description("Время очистки Context перед возвратом в пул")
+                .register(meterRegistry);
+        this.intrinsicsModified = Counter.builder("blockly.context.pool.intrinsics.modified")
+                .description("Context, закрытые из-за изменения скриптом встроенных объектов")
+                .register(meterRegistry);
+        Gauge.builder("blockly.context.pool.size", this, ContextPool::size)
+                .description("Количество созданных Context")
+                .register(meterRegistry);
+        Gauge.builder("blockly.context.pool.idle", this, ContextPool::idleCount)
+                .description("Количество свободных Context")
+                .register(meterRegistry);
+
+        if (enabled) {
+            prewarm(Math.min(prewarm, maxSize));
+        }
+    }
+
+    /**
+     * Выдает Context для тенанта. Блокируется, если все Context заняты.
+     */
+    public PooledContext acquire(String tenantId) throws InterruptedException {
+        return acquire(tenantId, false);
+    }
+
+    /**
+     * Выдает новый, ни разу не использованный Context.
+     * Нужен, если скрипт нельзя выполнить повторно в том же global scope
+     * (например, повторное объявление let/const).
+     */
+    public PooledContext acquireFresh(String tenantId) throws InterruptedException {
+        return acquire(tenantId, true);
+    }
+
+    /**
+     * Под блокировкой только выбирается свободный Context или резервируется место в пуле;
+     * создание и закрытие Context (дорогие операции) идут вне блокировки.
+     */
+    private PooledContext acquire(String tenantId, boolean fresh) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        PooledContext evicted;
+        lock.lock();
+        try {
+            while (true) {
+                PooledContext pooled = fresh ? null : takeIdle(tenantId);
+                if (pooled != null) {
+                    hits.increment();
+                    pooled.assignTo(tenantId);
+                    return pooled;
+                }
+
+                if (total < maxSize) {
+                    total++;
+                    evicted = null;
+                    break;
+                }
+
+                // Пул заполнен: место свободного Context другого тенанта переходит к этому выполнению
+                evicted = idle.pollLast();
+                if (evicted != null) {
+                    break;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("No free script context within " + acquireTimeoutMillis + " ms");
+                }
+                released.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        if (evicted != null) {
+            closeQuietly(evicted);
+        }
+        try {
+            return createFor(tenantId);
+        } catch (RuntimeException | Error e) {
+            freeSlot();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает Context в пул. Context после ошибки или с исчерпанным лимитом
+     * использований закрывается.
+     */
+    public void release(PooledContext pooled, boolean reusable) {
+        boolean keep = enabled && reusable && pooled.getUseCount() < maxUsesPerContext && reset(pooled);
+
+        if (!keep) {
+            // Место освобождается после закрытия: в пуле не бывает больше max-size живых Context
+            closeQuietly(pooled);
+            freeSlot();
+            return;
+        }
+        lock.lock();
+        try {
+            idle.addFirst(pooled);
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void freeSlot() {
+        lock.lock();
+        try {
+            total--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Очищает Context между выполнениями одного тенанта, не возвращая его в пул.
+     * false — Context очистить не удалось, его нужно вернуть через release(pooled, false).
+     */
+    public boolean recycle(PooledContext pooled) {
+        return reset(pooled);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int idleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<PooledContext> closing;
+        lock.lock();
+        try {
+            closing = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+        } finally {
+            lock.unlock();
+        }
+        closing.forEach(this::closeQuietly);
+    }
+
+    private PooledContext takeIdle(String tenantId) {
+        // Заранее созданные Context не имеют лимита кучи
+        boolean freshAllowed = maxHeapMb(tenantId) <= 0;
+        PooledContext fresh = null;
+        for (Iterator<PooledContext> it = idle.iterator(); it.hasNext(); ) {
+            PooledContext candidate = it.next();
+            if (Objects.equals(candidate.getTenantId(), tenantId)) {
+                it.remove();
+                return candidate;
+            }
+            if (freshAllowed && fresh == null && candidate.getTenantId() == null) {
+                fresh = candidate;
+            }
+        }
+        if (fresh != null) {
+            idle.remove(fresh);
+        }
+        return fresh;
+    }
+
+    private PooledContext createFor(String tenantId) {
+        PooledContext pooled = new PooledContext(newContext(maxHeapMb(tenantId)));
+        pooled.assignTo(tenantId);
+        return pooled;
+    }
+
+    private long maxHeapMb(String tenantId) {
+        Long maxHeapMb = budgets.budgetFor(tenantId).getMaxHeapMb();
+        return heapLimitSupported && maxHeapMb != null ? maxHeapMb : 0;
+    }
+
+    private Context newContext(long maxHeapMb) {
+        if (maxHeapMb > 0) {
+            try {
+                return builder().option("sandbox.MaxHeapMemory", maxHeapMb + "MB").build();
+            } catch (IllegalArgumentException e) {
+                // sandbox-опции доступны только в Oracle GraalVM
+                heapLimitSupported = false;
+                log.warn("Per-context heap limits are not supported by this GraalVM runtime, ignoring max-heap-mb: {}",
+                        e.getMessage());
+            }
+        }
+        return builder().build();
+    }
+
+    private Context.Builder builder() {
+        Context.Builder builder = Context.newBuilder("js")
+                .engine(engine)
+                //Разрешает JavaScript коду вызывать Java методы
+                .allowHostAccess(HostAccess.ALL)
+                //Запрещает JavaScript коду создавать новые Java объекты
+                .allowHostClassLookup(className -> false);
+        if (resourceLimits != null) {
+            builder.resourceLimits(resourceLimits);
+        }
+        return builder;
+    }
+
+    private void prewarm(int count) {
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                idle.addLast(new PooledContext(newContext(0)));
+                total++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Context pool prewarmed with {} contexts (max: {})", count, maxSize);
+    }
+
+    /**
+     * Очищает глобальные переменные скрипта. var/function нельзя удалить из global,
+     * поэтому им присваивается undefined. Context с const-переменными очистить нельзя —
+     * он закрывается. Context, в котором скрипт изменил встроенные объекты или прототипы,
+     * тоже закрывается: восстановить их нельзя, а следующее выполнение увидело бы изменения.
+     */
+    private boolean reset(PooledContext pooled) {
+        long start = System.nanoTime();
+        try {
+            org.graalvm.polyglot.Value bindings = pooled.bindings();
+            for (String key : bindings.getMemberKeys()) {
+                try {
+                    bindings.removeMember(key);
+                } catch (UnsupportedOperationException e) {
+                    bindings.putMember(key, pooled.getUndefined());
+                }
+            }
+            if (!pooled.intrinsicsIntact()) {
+                intrinsicsModified.increment();
+                log.debug("Script modified built-in objects, discarding context");
+                return false;
+            }
+            // Проверка выше тоже расходует лимит операторов, поэтому сброс — последним
+            pooled.getContext().resetLimits();
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to reset script context, discarding it: {}", e.getMessage());
+            return false;
+        } finally {
+            resetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void closeQuietly(PooledContext pooled) {
+        try {
+            pooled.getContext().close();
+        } catch (Exception e) {
+            log.debug("Error while closing script context: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.blockly_executor_service.service.engine;
+
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Представления параметров скрипта без копирования: Map виден в JS как объект,
+ * List — как массив. Вложенные Map/List оборачиваются при обращении, строки и числа
+ * передаются как есть. Запись из JS идет в исходную коллекцию.
+ */
+public final class ParamProxies {
+
+    private ParamProxies() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Object wrap(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return new MapView((Map<String, Object>) map);
+        }
+        if (value instanceof List<?> list) {
+            return new ListView((List<Object>) list);
+        }
+        return value;
+    }
+
+    /**
+     * Исходная Java-коллекция за представлением или null, если это не представление параметров.
+     */
+    static Object unwrap(Object proxy) {
+        if (proxy instanceof MapView view) {
+            return view.map;
+        }
+        if (proxy instanceof ListView view) {
+            return view.list;
+        }
+        return null;
+    }
+
+    static final class MapView implements ProxyObject {
+
+        private final Map<String, Object> map;
+
+        MapView(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Object getMember(String key) {
+            return wrap(map.get(key));
+        }
+
+        @Override
+        public Object getMemberKeys() {
+            return new ListView(new ArrayList<>(map.keySet()));
+        }
+
+        @Override
+        public boolean hasMember(String key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public void putMember(String key, Value value) {
+            map.put(key, ValueConverter.toJava(value));
+        }
+
+        @Override
+        public boolean removeMember(String key) {
+            if (!map.containsKey(key)) {
+                return false;
+            }
+            map.remove(key);
+            return true;
+        }
+    }
+
+    static final class ListView implements ProxyArray {
+
+        private final List<Object> list;
+
+        ListView(List<Object> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Object get(long index) {
+            return wrap(list.get(checkIndex(index)));
+        }
+
+        @Override
+        public void set(long index, Value value) {
+            int i = checkIndex(index);
+            Object element = ValueConverter.toJava(value);
+            // push() из JS пишет по индексу size
+            if (i == list.size()) {
+                list.add(element);
+            } else {
+                list.set(i, element);
+            }
+        }
+
+        @Override
+        public boolean remove(long index) {
+            list.remove(checkIndex(index));
+            return true;
+        }
+
+        @Override
+        public long getSize() {
+            return list.size();
+        }
+
+        private static int checkIndex(long index) {
+            if (index < 0 || index > Integer.MAX_VALUE) {
+                throw new ArrayIndexOutOfBoundsException("Invalid index " + index);
+            }
+            return (int) index;
+        }
+    }
+}
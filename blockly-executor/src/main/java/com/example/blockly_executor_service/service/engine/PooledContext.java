@@ -0,0 +1,103 @@
+package com.example.blockly_executor_service.service.engine;
+
+import lombok.Getter;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+
+/**
+ * Polyglot Context из пула вместе с информацией о последнем тенанте.
+ * Context однопоточный: одновременно им владеет только одно выполнение.
+ */
+@Getter
+public class PooledContext {
+
+    /**
+     * Снимок встроенных объектов при создании Context: свойства глобального объекта и основных
+     * конструкторов, их прототипов и прототипов итераторов. Возвращает функцию, которая проверяет,
+     * что снимок не изменен. Нужные ей функции (Reflect.ownKeys, Object.is и т.д.) захвачены
+     * в замыкании до выполнения скриптов, поэтому их подмена скриптом не влияет на проверку.
+     */
+    private static final Source INTRINSICS_SNAPSHOT = Source.newBuilder("js", """
+            (function () {
+              const ownKeys = Reflect.ownKeys;
+              const getDesc = Object.getOwnPropertyDescriptor;
+              const getProto = Object.getPrototypeOf;
+              const isExtensible = Object.isExtensible;
+              const same = Object.is;
+              const arrayIterator = getProto([][Symbol.iterator]());
+              const targets = [globalThis, Object, Function, Array, String, Number, Boolean, Symbol, BigInt, Date,
+                RegExp, Error, TypeError, RangeError, SyntaxError, Promise, Map, Set, WeakMap, WeakSet,
+                ArrayBuffer, Uint8Array, getProto(Int8Array), JSON, Math, Reflect];
+              for (let i = targets.length - 1; i > 0; i--) {
+                if (typeof targets[i] === 'function') {
+                  targets.push(targets[i].prototype);
+                }
+              }
+              targets.push(arrayIterator, getProto(arrayIterator), getProto(''[Symbol.iterator]()),
+                getProto(new Map().entries()), getProto(new Set().values()));
+              const snapshot = [];
+              for (let i = 0; i < targets.length; i++) {
+                const target = targets[i];
+                const keys = ownKeys(target);
+                const descs = [];
+                for (let k = 0; k < keys.length; k++) {
+                  descs[k] = getDesc(target, keys[k]);
+                }
+                snapshot[i] = {target, keys, descs, proto: getProto(target), extensible: isExtensible(target)};
+              }
+              return function intact() {
+                for (let i = 0; i < snapshot.length; i++) {
+                  const o = snapshot[i];
+                  // У глобального объекта проверяются только исходные свойства: переменные скриптов очищает reset
+                  if (getProto(o.target) !== o.proto || isExtensible(o.target) !== o.extensible
+                      || (i > 0 && ownKeys(o.target).length !== o.keys.length)) {
+                    return false;
+                  }
+                  for (let k = 0; k < o.keys.length; k++) {
+                    const was = o.descs[k];
+                    const now = getDesc(o.target, o.keys[k]);
+                    if (now === undefined || !same(now.value, was.value) || now.get !== was.get || now.set !== was.set
+                        || now.writable !== was.writable || now.enumerable !== was.enumerable
+                        || now.configurable !== was.configurable) {
+                      return false;
+                    }
+                  }
+                }
+                return true;
+              };
+            })()
+            """, "intrinsics-snapshot.js").cached(true).buildLiteral();
+
+    private final Context context;
+    private final Value undefined;
+    @Getter(lombok.AccessLevel.NONE)
+    private final Value intrinsicsIntact;
+    private String tenantId;
+    private int useCount;
+
+    PooledContext(Context context) {
+        this.context = context;
+        this.undefined = context.eval("js", "undefined");
+        this.intrinsicsIntact = context.eval(INTRINSICS_SNAPSHOT);
+        // Снимок не расходует лимит операторов первого выполнения
+        context.resetLimits();
+    }
+
+    public Value bindings() {
+        return context.getBindings("js");
+    }
+
+    /**
+     * Встроенные объекты и прототипы не изменены скриптами (Array.prototype.x = ..., JSON.parse = ...).
+     * Иначе изменения увидит следующее выполнение в этом Context.
+     */
+    boolean intrinsicsIntact() {
+        return intrinsicsIntact.execute().asBoolean();
+    }
+
+    void assignTo(String tenantId) {
+        this.tenantId = tenantId;
+        this.useCount++;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Чтения DAO с реплики (blockly.replica.enabled). Реплика используется, пока ее отставание
+ * не больше max-lag-ms; отставание проверяется каждые check-interval-ms. Если реплика
+ * недоступна или отстает, чтения идут на primary; недоступность, обнаруженная запросом,
+ * снимает реплику до следующей успешной проверки.
+ *
+ * Чтение своих записей обеспечивает ReadRoute: после первой записи выполнение читает только с primary.
+ */
+@Slf4j
+@Component
+public class ReplicaRouter {
+
+    // 0, если реплика догнала primary или это не standby (например, локальная замена реплики)
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery()"
+            + " OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final ScheduledExecutorService lagChecker;
+
+    private volatile boolean healthy;
+    private volatile long lagMillis = -1;
+
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+    private final Counter fallbacks;
+
+    public ReplicaRouter(MeterRegistry meterRegistry,
+                         @Qualifier("replicaJdbcTemplate") ObjectProvider<JdbcTemplate> replica,
+                         @Value("${blockly.replica.max-lag-ms:1000}") long maxLagMillis,
+                         @Value("${blockly.replica.check-interval-ms:1000}") long checkIntervalMillis) {
+        this.replica = replica.getIfAvailable();
+        this.maxLagMillis = maxLagMillis;
+        this.replicaReads = Counter.builder("blockly.dao.reads")
+                .description("Чтения DAO по источнику")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        this.primaryReads = Counter.builder("blockly.dao.reads")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("blockly.replica.fallbacks")
+                .description("Чтения, повторенные на primary из-за ошибки реплики")
+                .register(meterRegistry);
+
+        if (this.replica == null) {
+            this.lagChecker = null;
+            return;
+        }
+        Gauge.builder("blockly.replica.lag", this, router -> router.lagMillis)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Replica reads enabled, max lag {} ms", maxLagMillis);
+    }
+
+    /**
+     * Реплика настроена, доступна и отстает не больше max-lag-ms.
+     */
+    public boolean available() {
+        return replica != null && healthy && lagMillis <= maxLagMillis;
+    }
+
+    /**
+     * JdbcTemplate реплики, null — реплика не настроена.
+     */
+    public JdbcTemplate replica() {
+        return replica;
+    }
+
+    /**
+     * Чтение с реплики (replica — JdbcTemplate над replica()) или, если replica = null, с primary.
+     * Ошибка соединения с репликой или конфликт с восстановлением на standby повторяют
+     * запрос на primary.
+     */
+    public <T> T read(JdbcTemplate primary, JdbcTemplate replica, Function<JdbcTemplate, T> query) {
+        if (replica == null) {
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+        try {
+            replicaReads.increment();
+            return query.apply(replica);
+        } catch (DataAccessResourceFailureException | ConcurrencyFailureException e) {
+            if (e instanceof DataAccessResourceFailureException) {
+                healthy = false;
+                log.warn("Replica unavailable, reading from primary until next lag check: {}", e.getMessage());
+            }
+            fallbacks.increment();
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+    }
+
+    void checkLag() {
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagMillis = lag != null ? lag.longValue() : 0;
+            if (!healthy) {
+                log.info("Replica available, lag {} ms", lagMillis);
+            }
+            healthy = true;
+        } catch (DataAccessException e) {
+            if (healthy) {
+                log.warn("Replica lag check failed, reading from primary: {}", e.getMessage());
+            }
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Кеш строк для TenantAwareDao.findById/findOne по (tenantId, таблица, id или условия).
+ *
+ * Включается для перечисленных таблиц (blockly.executor.row-cache.tables: "products" — для всех
+ * тенантов, "appliner.products" — для одного; без учета регистра, как имена без кавычек в PostgreSQL):
+ * только для таблиц, которые пишутся исключительно
+ * через DAO. create/update/delete и пакетная запись через DAO обновляют или сбрасывают записи;
+ * изменения в обход сервиса (и с других экземпляров) видны не позже чем через TTL.
+ *
+ * Строки хранятся как есть: DAO кладет и выдает копии.
+ */
+@Component
+public class RowCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Set<String> tables;
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // tenantId/таблица -> версии записи
+    private final ConcurrentHashMap<String, Versions> versions = new ConcurrentHashMap<>();
+
+    public RowCache(MeterRegistry meterRegistry,
+                    @Value("${blockly.executor.row-cache.enabled:false}") boolean enabled,
+                    @Value("${blockly.executor.row-cache.tables:}") Set<String> tables,
+                    @Value("${blockly.executor.row-cache.max-entries:10000}") int maxEntries,
+                    @Value("${blockly.executor.row-cache.ttl-seconds:60}") int ttlSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled && !tables.isEmpty() && maxEntries > 0 && ttlSeconds > 0;
+        this.tables = tables.stream().map(RowCache::normalizeTable).collect(Collectors.toUnmodifiableSet());
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000L;
+
+        Gauge.builder("blockly.row.cache.size", this, RowCache::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isCached(String tenantId, String table) {
+        String name = normalizeTable(table);
+        return enabled && (tables.contains(name) || tables.contains(normalizeTable(tenantId + "." + name)));
+    }
+
+    /**
+     * Версия записи в таблицу. Снимается до запроса к БД и передается в put:
+     * если за время запроса в таблицу писали, строка не кешируется.
+     */
+    public long version(String tenantId, String table) {
+        Versions tableVersions = versions.get(tenantId + "/" + normalizeTable(table));
+        return tableVersions == null ? 0 : tableVersions.any.get();
+    }
+
+    public Map<String, Object> getById(String tenantId, String table, Object id) {
+        return get(new Key(tenantId, normalizeTable(table), true, normalize(id)));
+    }
+
+    public Map<String, Object> getOne(String tenantId, String table, Map<String, Object> conditions) {
+        return get(new Key(tenantId, normalizeTable(table), false, normalize(conditions)));
+    }
+
+    public void putById(String tenantId, String table, Object id, Map<String, Object> row, long versionAtStart) {
+        put(new Key(tenantId, normalizeTable(table), true, normalize(id)), row, versionAtStart);
+    }
+
+    public void putOne(String tenantId, String table, Map<String, Object> conditions, Map<String, Object> row,
+                       long versionAtStart) {
+        put(new Key(tenantId, normalizeTable(table), false, normalize(conditions)), row, versionAtStart);
+    }
+
+    /**
+     * Вставка: устаревают результаты findOne, строки по id не меняются.
+     */
+    public void invalidate(String tenantId, String table) {
+        if (isCached(tenantId, table)) {
+            versions(tenantId, table).any.incrementAndGet();
+        }
+    }
+
+    /**
+     * Изменение строки id: строка по id заменяется новой (row) или удаляется (row == null).
+     */
+    public void refreshRow(String tenantId, String table, Object id, Map<String, Object> row) {
+        if (!isCached(tenantId, table)) {
+            return;
+        }
+        Versions tableVersions = versions(tenantId, table);
+        Key key = new Key(tenantId, normalizeTable(table), true, normalize(id));
+        synchronized (this) {
+            tableVersions.any.incrementAndGet();
+            entries.remove(key);
+        }
+        if (row != null) {
+            put(key, row, tableVersions.any.get());
+        }
+    }
+
+    /**
+     * Изменение неизвестного набора строк (updateMany/upsertMany): сбрасывается вся таблица.
+     */
+    public void invalidateRows(String tenantId, String table) {
+        if (isCached(tenantId, table)) {
+            Versions tableVersions = versions(tenantId, table);
+            tableVersions.any.incrementAndGet();
+            tableVersions.rows.incrementAndGet();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Map<String, Object> get(Key key) {
+        Map<String, Object> row = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis() && !isStale(key, entry)) {
+                    row = entry.row();
+                } else {
+                    entries.remove(key);
+                }
+            }
+        }
+        requests(key, row != null ? "hit" : "miss").increment();
+        return row;
+    }
+
+    private void put(Key key, Map<String, Object> row, long versionAtStart) {
+        Versions tableVersions = versions(key.tenantId(), key.table());
+        synchronized (this) {
+            if (tableVersions.any.get() != versionAtStart) {
+                return;
+            }
+            entries.put(key, new Entry(row, System.currentTimeMillis() + ttlMillis,
+                    tableVersions.any.get(), tableVersions.rows.get()));
+            var iterator = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isStale(Key key, Entry entry) {
+        Versions tableVersions = versions(key.tenantId(), key.table());
+        // Строку по id меняют только update/delete этого id (refreshRow) и пакетная запись;
+        // результат findOne — любая запись в таблицу
+        return key.byId()
+                ? tableVersions.rows.get() != entry.rowsVersion()
+                : tableVersions.any.get() != entry.version();
+    }
+
+    private Versions versions(String tenantId, String table) {
+        return versions.computeIfAbsent(tenantId + "/" + normalizeTable(table), k -> new Versions());
+    }
+
+    private Counter requests(Key key, String result) {
+        return Counter.builder("blockly.row.cache.requests")
+                .description("Обращения к кешу строк DAO")
+                .tag("tenant", key.tenantId())
+                .tag("table", key.table())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * id из JS приходит как Integer, Double или строка ("7" из параметров запроса), из строки БД — как Long:
+     * целые значения приводим к Long. Строка приводится, только если это каноническая запись числа
+     * ("7", но не "007" или "+7"), иначе разные значения текстовой колонки получили бы один ключ.
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if ((value instanceof Double || value instanceof Float) && isIntegral(((Number) value).doubleValue())) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger big && big.bitLength() < Long.SIZE) {
+            return big.longValue();
+        }
+        if (value instanceof BigDecimal decimal && decimal.stripTrailingZeros().scale() <= 0
+                && decimal.toBigInteger().bitLength() < Long.SIZE) {
+            return decimal.longValue();
+        }
+        if (value instanceof String string) {
+            Long number = canonicalLong(string);
+            return number != null ? number : string;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), normalize(v)));
+            return sorted;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.stream().map(RowCache::normalize).toList();
+        }
+        return value;
+    }
+
+    /**
+     * "Products" и "products" — одна таблица: PostgreSQL приводит имена без кавычек к нижнему регистру.
+     */
+    static String normalizeTable(String table) {
+        return table.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIntegral(double d) {
+        return d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 0x1p63;
+    }
+
+    private static Long canonicalLong(String string) {
+        if (string.isEmpty() || string.length() > 20) {
+            return null;
+        }
+        try {
+            long number = Long.parseLong(string);
+            return Long.toString(number).equals(string) ? number : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Key(String tenantId, String table, boolean byId, Object lookup) {
+    }
+
+    private record Entry(Map<String, Object> row, long expiresAt, long version, long rowsVersion) {
+    }
+
+    private static final class Versions {
+        // Любая запись в таблицу
+        private final AtomicLong any = new AtomicLong();
+        // Запись, после которой неизвестно, какие строки изменились
+        private final AtomicLong rows = new AtomicLong();
+    }
+}
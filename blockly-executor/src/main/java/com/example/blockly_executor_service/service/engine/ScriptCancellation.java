@@ -0,0 +1,61 @@
+package com.example.blockly_executor_service.service.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Связывает ожидающий поток с Context, в котором выполняется скрипт.
+ * cancel() закрывает Context с флагом cancel: GraalJS прерывает выполнение
+ * внутри движка, и воркер освобождается сразу, а не после завершения цикла.
+ *
+ * close(true) ждет, пока воркер выйдет из Context, — например, из долгого запроса
+ * в БД. Поэтому закрытие идет в отдельном потоке: ожидающий поток возвращает
+ * ошибку таймаута сразу, а воркер не блокируется на мониторе в detach().
+ */
+@Slf4j
+public class ScriptCancellation {
+
+    private static final ExecutorService CLOSER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "script-cancel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PooledContext attached;
+    private boolean cancelled;
+
+    public synchronized void attach(PooledContext pooled) {
+        if (cancelled) {
+            throw new CancellationException("Script execution was cancelled before start");
+        }
+        this.attached = pooled;
+    }
+
+    public synchronized void detach() {
+        this.attached = null;
+    }
+
+    public void cancel() {
+        PooledContext target;
+        synchronized (this) {
+            cancelled = true;
+            target = attached;
+        }
+        if (target != null) {
+            CLOSER.execute(() -> {
+                try {
+                    target.getContext().close(true);
+                } catch (Exception e) {
+                    log.debug("Error while cancelling script context: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.blockly_executor_service.service.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyExecutable;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Асинхронные запросы скрипта: запрос выполняется в пуле ввода-вывода, а в JS
+ * сразу возвращается Promise. Context однопоточный, поэтому Promise разрешается
+ * только в потоке скрипта — в settle(), после того как eval вернул управление.
+ *
+ * Один экземпляр на выполнение скрипта. Число одновременных запросов одного скрипта
+ * ограничено: при превышении скрипт ждет освобождения слота на следующем вызове.
+ */
+@Slf4j
+public class ScriptEventLoop {
+
+    private final Executor ioExecutor;
+    private final Semaphore inFlight;
+    private final BlockingQueue<Runnable> completions = new LinkedBlockingQueue<>();
+    // Меняется только в потоке скрипта
+    private int pending;
+    private long waitedNanos;
+
+    public ScriptEventLoop(Executor ioExecutor, int maxConcurrentQueries) {
+        this.ioExecutor = ioExecutor;
+        this.inFlight = new Semaphore(Math.max(1, maxConcurrentQueries));
+    }
+
+    /**
+     * Запускает запрос и возвращает JS Promise. Вызывается из скрипта (поток скрипта).
+     */
+    public Value promise(Callable<?> query) {
+        Context context = Context.getCurrent();
+        Value promiseConstructor = context.getBindings("js").getMember("Promise");
+        return promiseConstructor.newInstance((ProxyExecutable) args -> {
+            start(context, query, args[0], args[1]);
+            return null;
+        });
+    }
+
+    /**
+     * Дожидается всех запущенных запросов, разрешая их Promise в потоке скрипта.
+     * Если результат скрипта — Promise (или thenable), возвращает его итоговое значение.
+     */
+    public Value settle(Value result) throws InterruptedException {
+        drain();
+        if (result == null || !isThenable(result)) {
+            return result;
+        }
+
+        Value[] outcome = new Value[1];
+        boolean[] rejected = new boolean[1];
+        result.invokeMember("then",
+                (ProxyExecutable) args -> {
+                    outcome[0] = args.length > 0 ? args[0] : null;
+                    return null;
+                },
+                (ProxyExecutable) args -> {
+                    outcome[0] = args.length > 0 ? args[0] : null;
+                    rejected[0] = true;
+                    return null;
+                });
+        // Колбэки then могли запустить новые запросы
+        drain();
+
+        if (rejected[0]) {
+            Value reason = outcome[0];
+            String message = reason == null ? "undefined"
+                    : reason.hasMember("message") ? reason.getMember("message").toString() : reason.toString();
+            throw new IllegalStateException("Script promise rejected: " + message);
+        }
+        return outcome[0];
+    }
+
+    private void start(Context context, Callable<?> query, Value resolve, Value reject) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject.executeVoid(error(context, "Interrupted while waiting for a database slot"));
+            return;
+        }
+        pending++;
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    Object rows = query.call();
+                    completions.add(() -> resolve.executeVoid(rows));
+                } catch (Exception e) {
+                    log.debug("Async query failed: {}", e.getMessage());
+                    completions.add(() -> reject.executeVoid(error(context, e.getMessage())));
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            completions.add(() -> reject.executeVoid(error(context, "Database I/O pool is overloaded")));
+        }
+    }
+
+    /**
+     * Сколько поток скрипта ждал завершения асинхронных запросов.
+     */
+    public long waitedNanos() {
+        return waitedNanos;
+    }
+
+    private void drain() throws InterruptedException {
+        while (pending > 0) {
+            long start = System.nanoTime();
+            Runnable completion = completions.take();
+            waitedNanos += System.nanoTime() - start;
+            pending--;
+            completion.run();
+        }
+    }
+
+    private static boolean isThenable(Value value) {
+        if (!value.hasMembers() || value.isHostObject()) {
+            return false;
+        }
+        Value then = value.getMember("then");
+        return then != null && then.canExecute();
+    }
+
+    private static Value error(Context context, String message) {
+        return context.getBindings("js").getMember("Error").newInstance(message);
+    }
+}
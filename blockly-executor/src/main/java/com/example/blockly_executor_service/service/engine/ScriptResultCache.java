@@ -0,0 +1,203 @@
+package com.example.blockly_executor_service.service.engine;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш результатов детерминированных скриптов по (tenantId, хеш скрипта, хеш параметров).
+ *
+ * Запись хранит версии таблиц, которые читал скрипт. Запись в таблицу через
+ * TenantAwareDao увеличивает ее версию, и зависящие от нее результаты становятся
+ * устаревшими. Скрипт с произвольным SQL (DB.query) зависит от всех таблиц тенанта.
+ * Кеш локален для экземпляра сервиса: записи в обход сервиса и записи с других экземпляров
+ * ограничены только TTL, поэтому при нескольких экземплярах результат может устареть на весь TTL.
+ */
+@Slf4j
+@Component
+public class ScriptResultCache {
+
+    /** Зависимость от любой записи тенанта. */
+    public static final String ALL_TABLES = "*";
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int maxTtlSeconds;
+    // Канонический JSON: ключи Map в порядке сортировки
+    private final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .build();
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // tenantId + таблица -> версия записи
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public ScriptResultCache(MeterRegistry meterRegistry,
+                             @Value("${blockly.executor.result-cache.enabled:true}") boolean enabled,
+                             @Value("${blockly.executor.result-cache.max-entries:10000}") int maxEntries,
+                             @Value("${blockly.executor.result-cache.max-ttl-seconds:300}") int maxTtlSeconds) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxTtlSeconds = maxTtlSeconds;
+
+        this.hits = Counter.builder("blockly.result.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("blockly.result.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("blockly.result.cache.invalidations")
+                .description("Записи в таблицы, сделавшие устаревшими кешированные результаты")
+                .register(meterRegistry);
+        Gauge.builder("blockly.result.cache.size", this, ScriptResultCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Итоговый TTL: из запроса, иначе из аннотации скрипта, не больше max-ttl-seconds.
+     * 0 — результат не кешируется.
+     */
+    public int effectiveTtlSeconds(Integer requestTtl, Integer annotatedTtl) {
+        if (!enabled) {
+            return 0;
+        }
+        Integer ttl = requestTtl != null ? requestTtl : annotatedTtl;
+        return ttl == null ? 0 : Math.max(0, Math.min(ttl, maxTtlSeconds));
+    }
+
+    /**
+     * Ключ кеша или null, если параметры нельзя привести к каноническому виду.
+     */
+    public Key key(String tenantId, String scriptHash, Map<String, Object> params) {
+        try {
+            byte[] canonical = canonicalMapper.writeValueAsBytes(params != null ? params : Map.of());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return new Key(tenantId, scriptHash, HexFormat.of().formatHex(digest.digest(canonical)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.debug("Parameters are not cacheable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Кешированный результат или null. Истекшие и устаревшие записи удаляются.
+     */
+    public Entry get(Key key) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && (entry.expiresAt() <= System.currentTimeMillis() || isStale(key.tenantId(), entry))) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Версия записей тенанта. Снимается до выполнения скрипта и передается в put:
+     * если за время выполнения тенант что-то записал, результат не кешируется.
+     */
+    public long tenantVersion(String tenantId) {
+        return version(tenantId, ALL_TABLES);
+    }
+
+    public void put(Key key, Object result, int ttlSeconds, Collection<String> tables, long tenantVersionAtStart) {
+        if (ttlSeconds <= 0) {
+            return;
+        }
+        Map<String, Long> tableVersions = new HashMap<>();
+        for (String table : tables) {
+            tableVersions.put(table, version(key.tenantId(), table));
+        }
+        synchronized (this) {
+            if (tenantVersion(key.tenantId()) != tenantVersionAtStart) {
+                return;
+            }
+            entries.put(key, new Entry(result, System.currentTimeMillis() + ttlSeconds * 1000L, tableVersions));
+            var iterator = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Запись тенанта в таблицу: результаты, читавшие ее, больше не выдаются.
+     */
+    public void invalidate(String tenantId, String table) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            counter(tenantId, table).incrementAndGet();
+            counter(tenantId, ALL_TABLES).incrementAndGet();
+        }
+        invalidations.increment();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isStale(String tenantId, Entry entry) {
+        for (Map.Entry<String, Long> dependency : entry.tableVersions().entrySet()) {
+            if (version(tenantId, dependency.getKey()) != dependency.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long version(String tenantId, String table) {
+        AtomicLong counter = versions.get(tenantId + "/" + table);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private AtomicLong counter(String tenantId, String table) {
+        return versions.computeIfAbsent(tenantId + "/" + table, k -> new AtomicLong());
+    }
+
+    public record Key(
+            String tenantId,
+            String scriptHash,
+            String paramsHash
+    ) {
+    }
+
+    /**
+     * @param result результат скрипта (Map/List/примитивы), общий для всех попаданий — не изменяется
+     */
+    public record Entry(
+            Object result,
+            long expiresAt,
+            Map<String, Long> tableVersions
+    ) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.graalvm.polyglot.Source;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LRU-кеш Source по SHA-256 хешу текста скрипта.
+ *
+ * Общий Engine хранит разобранный и скомпилированный код, пока жив объект Source,
+ * поэтому повторные скрипты не разбираются заново и используют прогретый код.
+ * Размер ограничен количеством записей и суммарной длиной исходников.
+ */
+@Slf4j
+@Component
+public class ScriptSourceCache {
+
+    // Аннотация в начальном комментарии скрипта: // @cache ttl=30 или /* @cache ttl=30 */
+    private static final Pattern CACHE_ANNOTATION = Pattern.compile("^\\s*(?://|/\\*)\\s*@cache\\s+ttl\\s*=\\s*(\\d+)");
+
+    private final int maxEntries;
+    private final long maxTotalChars;
+
+    private final LinkedHashMap<String, CachedScript> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ScriptSourceCache(MeterRegistry meterRegistry,
+                             @Value("${blockly.executor.script-cache.max-entries:1000}") int maxEntries,
+                             @Value("${blockly.executor.script-cache.max-total-chars:20000000}") long maxTotalChars) {
+        this.maxEntries = maxEntries;
+        this.maxTotalChars = maxTotalChars;
+
+        this.hits = Counter.builder("blockly.script.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("blockly.script.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("blockly.script.cache.evictions")
+                .description("Вытесненные из кеша скрипты")
+                .register(meterRegistry);
+        Gauge.builder("blockly.script.cache.size", this, ScriptSourceCache::size)
+                .register(meterRegistry);
+        Gauge.builder("blockly.script.cache.hit.ratio", this, ScriptSourceCache::hitRatio)
+                .description("Доля запросов, обслуженных из кеша")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает Source для текста скрипта, создавая его при промахе.
+     */
+    public CachedScript get(String script) {
+        String hash = hash(script);
+        synchronized (this) {
+            CachedScript cached = entries.get(hash);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        Source source = Source.newBuilder("js", script, "script-" + hash.substring(0, 12) + ".js")
+                .cached(true)
+                .buildLiteral();
+        CachedScript created = new CachedScript(hash, source, cacheTtlSeconds(script));
+
+        synchronized (this) {
+            CachedScript existing = entries.putIfAbsent(hash, created);
+            if (existing != null) {
+                return existing;
+            }
+            totalChars += script.length();
+            evictIfNeeded();
+        }
+        return created;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    public static String hash(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static Integer cacheTtlSeconds(String script) {
+        Matcher matcher = CACHE_ANNOTATION.matcher(script);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    private void evictIfNeeded() {
+        var iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalChars > maxTotalChars) && iterator.hasNext()) {
+            Map.Entry<String, CachedScript> eldest = iterator.next();
+            totalChars -= eldest.getValue().source().getLength();
+            iterator.remove();
+            evictions.increment();
+            log.debug("Evicted script {} from source cache", eldest.getKey());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Объединение одинаковых одновременных чтений: (tenantId, SQL, параметры) выполняется
+ * одним запросом, остальные ждут его результат и получают копию. Всплеск одинаковых
+ * скриптов занимает одно соединение пула вместо десятков.
+ *
+ * Запись тенанта через DAO начинает новую эпоху: чтение после записи не присоединяется
+ * к запросу, начатому до нее. Если общий запрос завершился ошибкой, ожидающие выполняют
+ * запрос сами — ошибка могла быть вызвана отменой скрипта-инициатора. Ожидание ограничено
+ * таймаутом запроса ожидающего: инициатор может выполняться со своим, более поздним сроком.
+ */
+@Component
+public class SingleFlight {
+
+    private final boolean enabled;
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    // tenantId -> номер эпохи записи
+    private final ConcurrentHashMap<String, AtomicLong> epochs = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${blockly.executor.single-flight.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.leaders = Counter.builder("blockly.dao.single.flight")
+                .description("Чтения DAO: выполненные (leader) и получившие результат чужого запроса (shared)")
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.followers = Counter.builder("blockly.dao.single.flight")
+                .tag("result", "shared")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет query или ждет такой же запрос, уже выполняемый другим скриптом.
+     *
+     * @param share копия результата для каждого получателя: результат общий, а скрипты его изменяют
+     */
+    public <T> T run(String tenantId, String sql, Object[] params, Supplier<T> query, UnaryOperator<T> share) {
+        return run(tenantId, false, 0, sql, params, query, share);
+    }
+
+    /**
+     * То же с учетом источника: чтения с реплики и с primary не объединяются —
+     * выполнению, читающему свои записи, нельзя отдать результат реплики.
+     *
+     * @param waitNanos сколько ждать чужой запрос (таймаут своего запроса), 0 — без ограничения;
+     *                  по истечении — QueryTimeoutException, как при таймауте своего запроса
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(String tenantId, boolean replica, long waitNanos, String sql, Object[] params, Supplier<T> query,
+                     UnaryOperator<T> share) {
+        if (!enabled) {
+            return query.get();
+        }
+        Key key = new Key(tenantId, epoch(tenantId).get(), replica, sql, Arrays.asList(params.clone()));
+        Flight[] created = new Flight[1];
+        Flight flight = inFlight.compute(key, (k, current) ->
+                current != null && current.join() ? current : (created[0] = new Flight()));
+
+        if (flight != created[0]) {
+            followers.increment();
+            T result;
+            try {
+                result = (T) flight.await(waitNanos);
+            } catch (ExecutionException e) {
+                // Запрос инициатора упал, возможно из-за отмены его скрипта: выполняем сами
+                return query.get();
+            }
+            return result != null ? share.apply(result) : null;
+        }
+
+        leaders.increment();
+        T result;
+        try {
+            result = query.get();
+        } catch (RuntimeException | Error e) {
+            finish(key, flight);
+            flight.future.completeExceptionally(e);
+            throw e;
+        }
+        boolean shared = finish(key, flight);
+        flight.future.complete(result);
+        if (shared && result != null) {
+            // Ожидающие копируют исходный результат, инициатор тоже получает копию
+            result = share.apply(result);
+        }
+        return result;
+    }
+
+    /**
+     * Запись тенанта: следующие чтения не присоединяются к уже начатым запросам.
+     */
+    public void onWrite(String tenantId) {
+        if (enabled) {
+            epoch(tenantId).incrementAndGet();
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Закрывает запрос инициатора для новых участников; true, если результат ждут другие.
+     */
+    private boolean finish(Key key, Flight flight) {
+        boolean shared = flight.close();
+        inFlight.remove(key, flight);
+        return shared;
+    }
+
+    private AtomicLong epoch(String tenantId) {
+        return epochs.computeIfAbsent(tenantId, k -> new AtomicLong());
+    }
+
+    private record Key(String tenantId, long epoch, boolean replica, String sql, List<Object> params) {
+    }
+
+    private static final class Flight {
+
+        // Завершается исключительно, если запрос инициатора упал
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private int followers;
+        private boolean closed;
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        /**
+         * Закрывает запрос для новых участников; true, если результат ждут другие.
+         */
+        synchronized boolean close() {
+            closed = true;
+            return followers > 0;
+        }
+
+        Object await(long waitNanos) throws ExecutionException {
+            try {
+                return waitNanos > 0 ? future.get(waitNanos, TimeUnit.NANOSECONDS) : future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shared query", e);
+            } catch (TimeoutException e) {
+                throw new QueryTimeoutException("Timed out waiting for shared query", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.blockly_executor_service.service.engine;
+
+import org.graalvm.polyglot.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Преобразует результат скрипта в обычные Java объекты.
+ * Значения polyglot Value привязаны к Context, поэтому результат нужно
+ * скопировать до возврата Context в пул.
+ *
+ * Дерево строится за один проход из String/Number/Boolean/List/Map и сериализуется
+ * Jackson без рефлексии по polyglot-обертками. Параметры, возвращенные скриптом
+ * без изменений (представления ParamProxies), отдаются исходными коллекциями,
+ * строки DAO — как есть.
+ */
+public final class ValueConverter {
+
+    private ValueConverter() {
+    }
+
+    public static Object toJava(Value value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isString()) {
+            return value.asString();
+        }
+        if (value.isNumber()) {
+            if (value.fitsInInt()) {
+                return value.asInt();
+            }
+            if (value.fitsInLong()) {
+                return value.asLong();
+            }
+            return value.asDouble();
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isHostObject()) {
+            return value.asHostObject();
+        }
+        if (value.isProxyObject()) {
+            Object proxy = value.asProxyObject();
+            Object original = ParamProxies.unwrap(proxy);
+            if (original != null) {
+                return original;
+            }
+            // Строки DAO (CompactRow) уже Map
+            if (proxy instanceof Map<?, ?> map) {
+                return map;
+            }
+        }
+        if (value.hasArrayElements()) {
+            long size = value.getArraySize();
+            List<Object> list = new ArrayList<>((int) size);
+            for (long i = 0; i < size; i++) {
+                list.add(toJava(value.getArrayElement(i)));
+            }
+            return list;
+        }
+        if (value.canExecute()) {
+            return null;
+        }
+        if (value.hasMembers()) {
+            Set<String> keys = value.getMemberKeys();
+            Map<String, Object> map = new LinkedHashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+            for (String key : keys) {
+                Value member = value.getMember(key);
+                if (member != null && !member.canExecute()) {
+                    map.put(key, toJava(member));
+                }
+            }
+            return map;
+        }
+        return value.toString();
+    }
+}
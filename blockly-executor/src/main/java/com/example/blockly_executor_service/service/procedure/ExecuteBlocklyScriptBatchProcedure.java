@@ -0,0 +1,90 @@
+package com.example.blockly_executor_service.service.procedure;
+
+
+import com.example.blockly_executor_service.model.BatchExecutionRequest;
+import com.example.blockly_executor_service.model.ExecutionResult;
+import com.example.blockly_executor_service.service.ScriptExecutionService;
+import com.example.common.ProcedureExecutor;
+import com.example.common.model.ExecutionMetadata;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Пакетное выполнение: один script и список наборов параметров (parameterSets).
+ * Возвращает результаты в порядке наборов, у каждого свой статус.
+ */
+@Slf4j
+@Component("executeBlocklyScriptBatch")
+@RequiredArgsConstructor
+public class ExecuteBlocklyScriptBatchProcedure implements ProcedureExecutor<Map<String, Object>, List<Map<String, Object>>> {
+
+    private final ScriptExecutionService scriptExecutionService;
+
+    @Override
+    public List<Map<String, Object>> execute(Map<String, Object> parameters) {
+        // извлекаем системные данные, добавленные BlocklyProcedureWorkerService:
+        ExecutionMetadata metadata = (ExecutionMetadata) parameters.get("__metadata");
+        String requestId = (String) parameters.get("requestId");
+
+        String script = (String) parameters.get("script");
+
+        List<Map<String, Object>> parameterSets = (List<Map<String, Object>>) parameters.get("parameterSets");
+        Boolean profile = parameters.get("profile") instanceof Boolean flag ? flag : null;
+        Map<String, Object> headersFromParams = (Map<String, Object>) parameters.get("headers");
+        Map<String, Object> headers = headersFromParams != null
+                ? new HashMap<>(headersFromParams)
+                : new HashMap<>();
+
+        if (script == null) {
+            throw new IllegalArgumentException("Script parameter is required");
+        }
+        if (parameterSets == null) {
+            throw new IllegalArgumentException("parameterSets parameter is required");
+        }
+
+        if (metadata == null || metadata.userId() == null || metadata.userId().isEmpty()) {
+            throw new SecurityException("User authentication required - metadata is missing");
+        }
+
+        headers.put("tenantId", metadata.tenantId());
+
+        if (requestId == null) {
+            requestId = UUID.randomUUID().toString();
+        }
+
+        log.info("Executing Blockly script batch of {} items (requestId: {})", parameterSets.size(), requestId);
+
+        List<ExecutionResult> results = scriptExecutionService.executeScriptBatch(BatchExecutionRequest.builder()
+                .script(script)
+                .parameterSets(parameterSets)
+                .headers(headers)
+                .requestId(requestId)
+                .deadline(metadata.deadline())
+                .profile(profile)
+                .build());
+
+        List<Map<String, Object>> response = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ExecutionResult result = results.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", i);
+            item.put("status", result.getStatus());
+            if (result.getStatus() == ExecutionResult.ExecutionStatus.SUCCESS) {
+                item.put("result", result.getResult() != null ? result.getResult() : "undefined");
+            } else {
+                item.put("errorMessage", result.getErrorMessage() != null ? result.getErrorMessage() : "Unknown error");
+            }
+            item.put("executionTime", result.getExecutionTime());
+            response.add(item);
+        }
+        return response;
+    }
+}
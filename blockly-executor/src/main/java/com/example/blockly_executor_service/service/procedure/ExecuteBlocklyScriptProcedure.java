@@ -31,6 +31,8 @@ public class ExecuteBlocklyScriptProcedure implements ProcedureExecutor<Map<Stri
             String requestId = (String) parameters.get("requestId");
 
             String script = (String) parameters.get("script");
+            Integer cacheTtlSeconds = parameters.get("cacheTtlSeconds") instanceof Number ttl ? ttl.intValue() : null;
+            Boolean profile = parameters.get("profile") instanceof Boolean flag ? flag : null;
 
             Map<String, Object> scriptParams = (Map<String, Object>) parameters.getOrDefault("parameters", Map.of());
             Map<String, Object> headersFromParams = (Map<String, Object>) parameters.get("headers");
@@ -59,6 +61,9 @@ public class ExecuteBlocklyScriptProcedure implements ProcedureExecutor<Map<Stri
                     .params(scriptParams)
                     .headers(headers)
                     .requestId(requestId)
+                    .deadline(metadata.deadline())
+                    .cacheTtlSeconds(cacheTtlSeconds)
+                    .profile(profile)
                     .build();
 
             // Выполняем скрипт
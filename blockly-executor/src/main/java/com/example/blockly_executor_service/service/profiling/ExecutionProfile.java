@@ -0,0 +1,157 @@
+package com.example.blockly_executor_service.service.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Разбивка времени одного выполнения скрипта: ожидание в очереди, компиляция,
+ * выполнение JS (wall и CPU) и вызовы БД по таблице и методу.
+ *
+ * Запросы *Async выполняются в пуле ввода-вывода параллельно с JS, поэтому их время
+ * учитывается в db, но не вычитается из js; ожидание их завершения — asyncWait.
+ * Для невыбранных выполнений используется DISABLED, который только вызывает запрос.
+ */
+public class ExecutionProfile {
+
+    public static final ExecutionProfile DISABLED = new ExecutionProfile(false);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+    private final LongAdder evalNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder asyncWaitNanos = new LongAdder();
+    private final LongAdder syncDbNanos = new LongAdder();
+    // table.method -> [вызовы, время]
+    private final ConcurrentHashMap<String, DbCall> dbCalls = new ConcurrentHashMap<>();
+    private volatile Thread scriptThread;
+
+    ExecutionProfile(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Выполняет запрос к БД и учитывает его время под ключом table.method.
+     * Вызовы из потока скрипта (синхронные) вычитаются из времени JS.
+     */
+    public <T> T db(String table, String method, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long spent = System.nanoTime() - start;
+            dbCalls.computeIfAbsent(table + "." + method, k -> new DbCall()).add(spent);
+            if (Thread.currentThread() == scriptThread) {
+                syncDbNanos.add(spent);
+            }
+        }
+    }
+
+    /**
+     * Текущий поток выполняет JS: его вызовы БД считаются синхронными.
+     */
+    public void scriptThread() {
+        scriptThread = Thread.currentThread();
+    }
+
+    public void queueWait(long nanos) {
+        queueWaitNanos.add(nanos);
+    }
+
+    public void compile(long nanos) {
+        compileNanos.add(nanos);
+    }
+
+    public void eval(long wallNanos, long cpuNanos) {
+        evalNanos.add(wallNanos);
+        if (cpuNanos >= 0) {
+            this.cpuNanos.add(cpuNanos);
+        }
+    }
+
+    public void asyncWait(long nanos) {
+        asyncWaitNanos.add(nanos);
+    }
+
+    public long queueWaitMillis() {
+        return millis(queueWaitNanos.sum());
+    }
+
+    public long compileMillis() {
+        return millis(compileNanos.sum());
+    }
+
+    /**
+     * Время выполнения JS без синхронных вызовов БД и ожидания асинхронных запросов.
+     */
+    public long jsMillis() {
+        return millis(Math.max(0, evalNanos.sum() - syncDbNanos.sum() - asyncWaitNanos.sum()));
+    }
+
+    public long jsCpuMillis() {
+        return millis(cpuNanos.sum());
+    }
+
+    public long dbMillis() {
+        return millis(dbCalls.values().stream().mapToLong(call -> call.nanos.sum()).sum());
+    }
+
+    public long asyncWaitMillis() {
+        return millis(asyncWaitNanos.sum());
+    }
+
+    /**
+     * Вызовы БД: table.method -> {calls, ms}, отсортированы по ключу.
+     */
+    public Map<String, Map<String, Long>> dbBreakdown() {
+        Map<String, Map<String, Long>> breakdown = new TreeMap<>();
+        dbCalls.forEach((key, call) -> breakdown.put(key, call.toMap()));
+        return breakdown;
+    }
+
+    public static long currentThreadCpuTime() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    static final class DbCall {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        void add(long spent) {
+            calls.increment();
+            nanos.add(spent);
+        }
+
+        Map<String, Long> toMap() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            map.put("calls", calls.sum());
+            map.put("ms", millis(nanos.sum()));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.blockly_executor_service.service.profiling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборочное профилирование выполнений скриптов и агрегация профилей по хешу скрипта.
+ * Выключено по умолчанию: blockly.executor.profiler.enabled=true и sample-rate — доля
+ * профилируемых выполнений. Запрос с profile=true профилируется всегда, если профайлер включен.
+ *
+ * Агрегаты доступны через /actuator/scriptprofiles.
+ */
+@Slf4j
+@Component
+public class ScriptProfiler {
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxScripts;
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<String, ScriptStats> scripts = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ScriptProfiler(MeterRegistry meterRegistry,
+                          @Value("${blockly.executor.profiler.enabled:false}") boolean enabled,
+                          @Value("${blockly.executor.profiler.sample-rate:0.01}") double sampleRate,
+                          @Value("${blockly.executor.profiler.max-scripts:1000}") int maxScripts) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxScripts = maxScripts;
+    }
+
+    /**
+     * Профиль для нового выполнения: включенный для выбранных, иначе DISABLED.
+     */
+    public ExecutionProfile start(boolean requested) {
+        if (enabled && (requested || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            return new ExecutionProfile(true);
+        }
+        return ExecutionProfile.DISABLED;
+    }
+
+    public void record(String scriptHash, ExecutionProfile profile) {
+        if (!profile.isEnabled()) {
+            return;
+        }
+        recordPhase("queue", profile.queueWaitMillis());
+        recordPhase("compile", profile.compileMillis());
+        recordPhase("js", profile.jsMillis());
+        recordPhase("db", profile.dbMillis());
+
+        ScriptStats stats;
+        synchronized (this) {
+            stats = scripts.computeIfAbsent(scriptHash, ScriptStats::new);
+            if (scripts.size() > maxScripts) {
+                var iterator = scripts.entrySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        synchronized (stats) {
+            stats.add(profile);
+        }
+    }
+
+    /**
+     * Скрипты с наибольшим суммарным временем.
+     */
+    public List<Map<String, Object>> top(int limit) {
+        List<ScriptStats> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(scripts.values());
+        }
+        return snapshot.stream()
+                .sorted(Comparator.comparingLong(ScriptStats::totalMillis).reversed())
+                .limit(limit)
+                .map(ScriptStats::toMap)
+                .toList();
+    }
+
+    public Map<String, Object> get(String scriptHash) {
+        ScriptStats stats;
+        synchronized (this) {
+            stats = scripts.get(scriptHash);
+        }
+        return stats == null ? null : stats.toMap();
+    }
+
+    public synchronized void reset() {
+        scripts.clear();
+    }
+
+    private void recordPhase(String phase, long millis) {
+        Timer.builder("blockly.script.profile")
+                .description("Время фаз профилируемых выполнений скриптов")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class ScriptStats {
+
+        private final String scriptHash;
+        private long executions;
+        private long queueWaitMs;
+        private long compileMs;
+        private long jsMs;
+        private long jsCpuMs;
+        private long dbMs;
+        private long asyncWaitMs;
+        private final Map<String, long[]> db = new TreeMap<>();
+
+        ScriptStats(String scriptHash) {
+            this.scriptHash = scriptHash;
+        }
+
+        void add(ExecutionProfile profile) {
+            executions++;
+            queueWaitMs += profile.queueWaitMillis();
+            compileMs += profile.compileMillis();
+            jsMs += profile.jsMillis();
+            jsCpuMs += profile.jsCpuMillis();
+            dbMs += profile.dbMillis();
+            asyncWaitMs += profile.asyncWaitMillis();
+            profile.dbBreakdown().forEach((key, call) -> {
+                long[] totals = db.computeIfAbsent(key, k -> new long[2]);
+                totals[0] += call.get("calls");
+                totals[1] += call.get("ms");
+            });
+        }
+
+        synchronized long totalMillis() {
+            return queueWaitMs + compileMs + jsMs + dbMs;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("scriptHash", scriptHash);
+            map.put("executions", executions);
+            map.put("queueWaitMs", queueWaitMs);
+            map.put("compileMs", compileMs);
+            map.put("jsMs", jsMs);
+            map.put("jsCpuMs", jsCpuMs);
+            map.put("dbMs", dbMs);
+            map.put("asyncWaitMs", asyncWaitMs);
+            Map<String, Object> hotspots = new LinkedHashMap<>();
+            db.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                    .forEach(e -> hotspots.put(e.getKey(), Map.of("calls", e.getValue()[0], "ms", e.getValue()[1])));
+            map.put("db", hotspots);
+            return map;
+        }
+    }
+}
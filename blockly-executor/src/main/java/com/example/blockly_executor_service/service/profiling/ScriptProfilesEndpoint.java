@@ -0,0 +1,39 @@
+package com.example.blockly_executor_service.service.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/scriptprofiles — агрегированные профили скриптов, по убыванию суммарного времени.
+ * /actuator/scriptprofiles/{scriptHash} — профиль одного скрипта, DELETE — сброс агрегатов.
+ */
+@Component
+@Endpoint(id = "scriptprofiles")
+@RequiredArgsConstructor
+public class ScriptProfilesEndpoint {
+
+    private final ScriptProfiler scriptProfiler;
+
+    @ReadOperation
+    public List<Map<String, Object>> profiles(@Nullable Integer limit) {
+        return scriptProfiler.top(limit != null ? limit : 20);
+    }
+
+    @ReadOperation
+    public Map<String, Object> profile(@Selector String scriptHash) {
+        return scriptProfiler.get(scriptHash);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        scriptProfiler.reset();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.blockly_executor_service.service.tenant;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Доли тенантов в общем пуле соединений скриптов. Тенант занимает не больше max-connections
+ * соединений; тенантам из blockly.tenants.overrides с min-connections эти соединения
+ * зарезервированы, остальная часть пула делится между всеми в порядке очереди (fair).
+ *
+ * Медленный SQL одного тенанта занимает только его долю: остальные тенанты получают
+ * соединения без ожидания, а сам тенант ждет не дольше connection-wait-ms.
+ *
+ * Доли действуют только на пул primary: чтения с реплики (ReplicaRouter) идут через общий
+ * пул blockly-replica без ограничения по тенантам.
+ */
+@Slf4j
+@Component
+public class TenantConnectionGovernor {
+
+    private final DataSource dataSource;
+    private final TenantBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final long waitNanos;
+    // Часть пула без резерва, общая для всех тенантов
+    private final Semaphore shared;
+    private final ConcurrentHashMap<String, TenantConnections> tenants = new ConcurrentHashMap<>();
+
+    public TenantConnectionGovernor(DataSource dataSource, TenantBudgetProperties properties, MeterRegistry meterRegistry,
+                                    @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                    @Value("${blockly.tenants.connection-wait-ms:5000}") long waitMillis) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+
+        int reserved = properties.getOverrides().keySet().stream()
+                .mapToInt(tenantId -> properties.budgetFor(tenantId).getMinConnections())
+                .sum();
+        if (reserved >= poolSize) {
+            throw new IllegalStateException("Reserved tenant connections (%d) must be less than pool size (%d)"
+                    .formatted(reserved, poolSize));
+        }
+        this.shared = new Semaphore(poolSize - reserved, true);
+        Gauge.builder("blockly.tenant.connections.shared.available", shared, Semaphore::availablePermits)
+                .description("Свободные соединения общей (незарезервированной) части пула")
+                .register(meterRegistry);
+        log.info("Tenant connection shares: pool {}, reserved {}", poolSize, reserved);
+    }
+
+    /**
+     * JdbcTemplate тенанта: каждое соединение берется в рамках его доли пула.
+     */
+    public JdbcTemplate jdbcTemplate(String tenantId) {
+        return tenants.computeIfAbsent(tenantId, this::register).jdbcTemplate;
+    }
+
+    private TenantConnections register(String tenantId) {
+        TenantBudgetProperties.Budget budget = properties.budgetFor(tenantId);
+        // Резерв только у тенантов, учтенных при расчете общей части
+        int reserved = properties.getOverrides().containsKey(tenantId) ? budget.getMinConnections() : 0;
+        TenantConnections connections = new TenantConnections(tenantId, reserved, budget.getMaxConnections());
+        Gauge.builder("blockly.tenant.connections.active", connections.quota,
+                        quota -> budget.getMaxConnections() - quota.availablePermits())
+                .tag("tenant", tenantId)
+                .register(meterRegistry);
+        return connections;
+    }
+
+    private final class TenantConnections {
+
+        private final String tenantId;
+        // Занятые тенантом соединения: не больше max-connections
+        private final Semaphore quota;
+        private final Semaphore reserved;
+        private final Timer waitTimer;
+        private final Counter timeouts;
+        private final JdbcTemplate jdbcTemplate;
+
+        TenantConnections(String tenantId, int reserved, int max) {
+            this.tenantId = tenantId;
+            this.quota = new Semaphore(max, true);
+            this.reserved = new Semaphore(reserved);
+            this.waitTimer = Timer.builder("blockly.tenant.connection.wait")
+                    .description("Ожидание соединения в рамках доли тенанта")
+                    .tag("tenant", tenantId)
+                    .register(meterRegistry);
+            this.timeouts = Counter.builder("blockly.tenant.connection.timeouts")
+                    .description("Запросы соединения, не дождавшиеся доли тенанта")
+                    .tag("tenant", tenantId)
+                    .register(meterRegistry);
+            this.jdbcTemplate = new JdbcTemplate(new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return acquire();
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return acquire();
+                }
+            });
+        }
+
+        private Connection acquire() throws SQLException {
+            long start = System.nanoTime();
+            boolean admitted = false;
+            Semaphore slot = null;
+            try {
+                if (!quota.tryAcquire(waitNanos, TimeUnit.NANOSECONDS)) {
+                    throw timeout("max-connections");
+                }
+                admitted = true;
+                if (reserved.tryAcquire()) {
+                    slot = reserved;
+                } else if (shared.tryAcquire(Math.max(0, waitNanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS)) {
+                    slot = shared;
+                } else {
+                    throw timeout("shared pool");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for connection", e);
+            } finally {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (admitted && slot == null) {
+                    quota.release();
+                }
+            }
+
+            try {
+                return release(dataSource.getConnection(), slot);
+            } catch (SQLException | RuntimeException e) {
+                slot.release();
+                quota.release();
+                throw e;
+            }
+        }
+
+        private SQLException timeout(String limit) {
+            timeouts.increment();
+            log.warn("Tenant {} waited too long for a connection: {} exhausted", tenantId, limit);
+            return new SQLTransientConnectionException(
+                    "Tenant '%s' connection share exhausted (%s), try again later".formatted(tenantId, limit));
+        }
+
+        /**
+         * Соединение, которое при закрытии возвращает долю тенанта.
+         */
+        private Connection release(Connection target, Semaphore slot) {
+            return new TenantConnection(target, () -> {
+                slot.release();
+                quota.release();
+            });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.blockly_executor_service.service.tenant;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Разрешение на выполнение скрипта в рамках бюджета тенанта.
+ * CPU-время измеряется в потоке воркера и списывается с квоты тенанта.
+ *
+ * Слот тенанта освобождается, когда скрипт действительно завершился: задача handOff
+ * освобождает его сама, close() вызывающего потока — только если задача не запускалась.
+ */
+public class TenantPermit implements AutoCloseable {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    @Getter
+    private final String tenantId;
+    @Getter
+    private final TenantBudgetProperties.Budget budget;
+    private final TenantResourceGovernor.TenantState state;
+    private final AtomicBoolean released = new AtomicBoolean();
+    // Слотом владеет задача handOff (запущена) или вызывающий поток (close до запуска)
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    TenantPermit(String tenantId, TenantBudgetProperties.Budget budget, TenantResourceGovernor.TenantState state) {
+        this.tenantId = tenantId;
+        this.budget = budget;
+        this.state = state;
+    }
+
+    /**
+     * Выполняет действие в текущем потоке и списывает затраченное CPU-время.
+     * Если CPU-время потока недоступно (например, виртуальный поток), списывается wall time.
+     */
+    public <T> T measure(CpuMeasured<T> action) throws Exception {
+        long cpuStart = currentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        try {
+            return action.run();
+        } finally {
+            long cpuEnd = currentThreadCpuTime();
+            long spent = cpuStart >= 0 && cpuEnd >= 0
+                    ? cpuEnd - cpuStart
+                    : System.nanoTime() - wallStart;
+            state.charge(spent);
+        }
+    }
+
+    /**
+     * Задача для воркера: выполняет действие через measure и освобождает слот по завершении,
+     * даже если вызывающий поток уже перестал ждать результат (таймаут, отмена).
+     * Если close() вызван до запуска, задача не выполняется.
+     */
+    public <T> Callable<T> handOff(CpuMeasured<T> action) {
+        return () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new CancellationException("Tenant permit released before the script started");
+            }
+            try {
+                return measure(action);
+            } finally {
+                release();
+            }
+        };
+    }
+
+    /**
+     * Освобождает слот, если задача handOff не была запущена; иначе слот освободит она.
+     */
+    @Override
+    public void close() {
+        if (claimed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            state.releaseSlot();
+        }
+    }
+
+    private static long currentThreadCpuTime() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    @FunctionalInterface
+    public interface CpuMeasured<T> {
+        T run() throws Exception;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.blockly_executor_service.service.tenant;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import com.example.blockly_executor_service.exception.TenantThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.common.exception.ExceptionMessages.TENANT_THROTTLED;
+
+/**
+ * Изоляция тенантов на одном инстансе: ограничивает число одновременных скриптов
+ * и CPU-время за окно. Тенант, превысивший бюджет, получает отказ сразу,
+ * не занимая очередь и воркеры остальных.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TenantResourceGovernor {
+
+    private final TenantBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, TenantState> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * Выдает разрешение на выполнение скрипта или бросает TenantThrottledException.
+     */
+    public TenantPermit admit(String tenantId) {
+        TenantBudgetProperties.Budget budget = properties.budgetFor(tenantId);
+        TenantState state = tenants.computeIfAbsent(tenantId, this::register);
+
+        if (state.cpuQuotaExceeded(budget)) {
+            throw throttle(tenantId, "cpu-quota");
+        }
+        if (!state.tryAcquireSlot(budget.getMaxConcurrentScripts())) {
+            throw throttle(tenantId, "concurrency");
+        }
+        return new TenantPermit(tenantId, budget, state);
+    }
+
+    public TenantBudgetProperties.Budget budgetFor(String tenantId) {
+        return properties.budgetFor(tenantId);
+    }
+
+    private TenantThrottledException throttle(String tenantId, String reason) {
+        Counter.builder("blockly.tenant.throttled")
+                .tag("tenant", tenantId)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.warn("Tenant {} throttled: {} budget exceeded", tenantId, reason);
+        return new TenantThrottledException(TENANT_THROTTLED.formatted(tenantId, reason));
+    }
+
+    private TenantState register(String tenantId) {
+        TenantState state = new TenantState(Counter.builder("blockly.tenant.cpu.time")
+                .baseUnit("milliseconds")
+                .description("CPU-время скриптов тенанта")
+                .tag("tenant", tenantId)
+                .register(meterRegistry));
+        Gauge.builder("blockly.tenant.active", state, TenantState::active)
+                .tag("tenant", tenantId)
+                .register(meterRegistry);
+        return state;
+    }
+
+    static class TenantState {
+
+        private final Counter cpuCounter;
+        private int active;
+        private long windowStartNanos = System.nanoTime();
+        private long windowCpuNanos;
+
+        TenantState(Counter cpuCounter) {
+            this.cpuCounter = cpuCounter;
+        }
+
+        synchronized boolean tryAcquireSlot(int maxConcurrent) {
+            if (active >= maxConcurrent) {
+                return false;
+            }
+            active++;
+            return true;
+        }
+
+        synchronized void releaseSlot() {
+            active--;
+        }
+
+        synchronized int active() {
+            return active;
+        }
+
+        synchronized void charge(long cpuNanos) {
+            windowCpuNanos += cpuNanos;
+            cpuCounter.increment(cpuNanos / 1_000_000.0);
+        }
+
+        synchronized boolean cpuQuotaExceeded(TenantBudgetProperties.Budget budget) {
+            if (budget.getCpuQuotaMs() <= 0) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (now - windowStartNanos >= TimeUnit.SECONDS.toNanos(budget.getCpuWindowSeconds())) {
+                windowStartNanos = now;
+                windowCpuNanos = 0;
+            }
+            return windowCpuNanos >= TimeUnit.MILLISECONDS.toNanos(budget.getCpuQuotaMs());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.blockly_executor_service.service.warmup;
+
+import com.example.blockly_executor_service.model.ExecutionRequest;
+import com.example.blockly_executor_service.model.ExecutionResult;
+import com.example.blockly_executor_service.service.ScriptExecutionService;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Прогрев после старта: до запуска Kafka listener прогоняет корпус типовых скриптов
+ * (resources/warmup/*.js) с обращениями DB к схеме tenant_warmup, чтобы GraalJS
+ * скомпилировал горячие пути, а Hikari/JDBC получили рабочие соединения.
+ *
+ * Прогрев идет раундами: раунд — каждый скрипт корпуса по одному разу в каждом потоке.
+ * Прогрев заканчивается, когда время раунда перестает заметно уменьшаться
+ * (stable-rounds раундов подряд улучшение меньше settle-threshold), либо по max-duration.
+ * Пока прогрев идет, инстанс не готов: readiness REFUSING_TRAFFIC, в Eureka — STARTING.
+ */
+@Slf4j
+@Component
+public class StartupWarmupRunner implements ApplicationRunner {
+
+    public static final String LISTENER_ID = "blocklyProcedureListener";
+    public static final String WARMUP_HEADER = "warmup";
+
+    private final ScriptExecutionService scriptExecutionService;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ApplicationContext applicationContext;
+    private final ObjectProvider<ApplicationInfoManager> eurekaInfoManager;
+
+    private final boolean enabled;
+    private final String tenantId;
+    private final String corpusLocation;
+    private final int threads;
+    private final int minRounds;
+    private final int maxRounds;
+    private final long maxDurationMillis;
+    private final double settleThreshold;
+    private final int stableRounds;
+    private final boolean exitAfterWarmup;
+
+    private final AtomicLong durationMillis = new AtomicLong();
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong rounds = new AtomicLong();
+    private volatile boolean completed;
+
+    public StartupWarmupRunner(ScriptExecutionService scriptExecutionService,
+                               KafkaListenerEndpointRegistry listenerRegistry,
+                               ApplicationContext applicationContext,
+                               ObjectProvider<ApplicationInfoManager> eurekaInfoManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${blockly.warmup.enabled:true}") boolean enabled,
+                               @Value("${blockly.warmup.tenant:warmup}") String tenantId,
+                               @Value("${blockly.warmup.corpus:classpath*:warmup/*.js}") String corpusLocation,
+                               @Value("${blockly.warmup.threads:4}") int threads,
+                               @Value("${blockly.warmup.min-rounds:20}") int minRounds,
+                               @Value("${blockly.warmup.max-rounds:500}") int maxRounds,
+                               @Value("${blockly.warmup.max-duration-ms:60000}") long maxDurationMillis,
+                               @Value("${blockly.warmup.settle-threshold:0.05}") double settleThreshold,
+                               @Value("${blockly.warmup.stable-rounds:5}") int stableRounds,
+                               @Value("${blockly.warmup.exit-after-warmup:false}") boolean exitAfterWarmup) {
+        this.scriptExecutionService = scriptExecutionService;
+        this.listenerRegistry = listenerRegistry;
+        this.applicationContext = applicationContext;
+        this.eurekaInfoManager = eurekaInfoManager;
+        this.enabled = enabled;
+        this.tenantId = tenantId;
+        this.corpusLocation = corpusLocation;
+        this.threads = Math.max(1, threads);
+        this.minRounds = minRounds;
+        this.maxRounds = maxRounds;
+        this.maxDurationMillis = maxDurationMillis;
+        this.settleThreshold = settleThreshold;
+        this.stableRounds = stableRounds;
+        this.exitAfterWarmup = exitAfterWarmup;
+
+        Gauge.builder("blockly.warmup.duration", durationMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .description("Длительность прогрева после старта")
+                .register(meterRegistry);
+        Gauge.builder("blockly.warmup.iterations", iterations, AtomicLong::get)
+                .description("Выполнено скриптов за прогрев")
+                .register(meterRegistry);
+        Gauge.builder("blockly.warmup.rounds", rounds, AtomicLong::get)
+                .description("Выполнено раундов прогрева")
+                .register(meterRegistry);
+        Gauge.builder("blockly.warmup.completed", this, runner -> runner.completed ? 1 : 0)
+                .description("1 — прогрев завершен, listener запущен")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            applicationContext.publishEvent(new AvailabilityChangeEvent<>(this, ReadinessState.REFUSING_TRAFFIC));
+            setEurekaStatus(InstanceInfo.InstanceStatus.STARTING);
+            try {
+                warmUp();
+            } catch (Exception e) {
+                // Неудачный прогрев не должен блокировать запуск сервиса
+                log.warn("Warm-up failed, starting without it: {}", e.getMessage(), e);
+            }
+        }
+
+        if (exitAfterWarmup) {
+            // Генерация engine cache: при закрытии контекста Engine записывает кеш на диск
+            log.info("Warm-up only run, shutting down");
+            System.exit(SpringApplication.exit(applicationContext));
+        }
+
+        completed = true;
+        startListener();
+        setEurekaStatus(InstanceInfo.InstanceStatus.UP);
+        applicationContext.publishEvent(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+    }
+
+    private void warmUp() throws Exception {
+        List<ExecutionRequest> corpus = loadCorpus();
+        if (corpus.isEmpty()) {
+            log.warn("Warm-up corpus {} is empty, skipping warm-up", corpusLocation);
+            return;
+        }
+        log.info("Warm-up started: {} scripts, {} threads, tenant {}", corpus.size(), threads, tenantId);
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxDurationMillis);
+        long bestRoundNanos = Long.MAX_VALUE;
+        int stable = 0;
+        int failures = 0;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (rounds.get() < maxRounds && System.nanoTime() < deadline) {
+                long roundStart = System.nanoTime();
+                List<Future<Integer>> futures = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    futures.add(pool.submit(() -> runRound(corpus)));
+                }
+                for (Future<Integer> future : futures) {
+                    failures += future.get();
+                }
+                long roundNanos = System.nanoTime() - roundStart;
+                rounds.incrementAndGet();
+                durationMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+                // Компиляция устоялась, если раунд ускорился меньше чем на settle-threshold
+                boolean settled = roundNanos >= bestRoundNanos * (1 - settleThreshold);
+                stable = settled ? stable + 1 : 0;
+                bestRoundNanos = Math.min(bestRoundNanos, roundNanos);
+                if (rounds.get() >= minRounds && stable >= stableRounds) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        durationMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Warm-up finished in {} ms: {} rounds, {} scripts executed, {} failed, best round {} ms",
+                durationMillis.get(), rounds.get(), iterations.get(), failures,
+                TimeUnit.NANOSECONDS.toMillis(bestRoundNanos));
+    }
+
+    private int runRound(List<ExecutionRequest> corpus) {
+        int failures = 0;
+        for (ExecutionRequest request : corpus) {
+            ExecutionResult result = scriptExecutionService.executeScript(request);
+            iterations.incrementAndGet();
+            if (result.getStatus() != ExecutionResult.ExecutionStatus.SUCCESS) {
+                failures++;
+                log.debug("Warm-up script failed: {}", result.getErrorMessage());
+            }
+        }
+        return failures;
+    }
+
+    private List<ExecutionRequest> loadCorpus() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(corpusLocation);
+        List<ExecutionRequest> corpus = new ArrayList<>(resources.length);
+        for (Resource resource : resources) {
+            String script = resource.getContentAsString(StandardCharsets.UTF_8);
+
+            Map<String, Object> headers = new HashMap<>();
+            headers.put("tenantId", tenantId);
+            headers.put(WARMUP_HEADER, true);
+
+            corpus.add(ExecutionRequest.builder()
+                    .script(script)
+                    .params(Map.of("category", "electronics", "limit", 10))
+                    .headers(headers)
+                    .requestId("warmup-" + resource.getFilename())
+                    .build());
+        }
+        return corpus;
+    }
+
+    private void startListener() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container != null && !container.isRunning()) {
+            container.start();
+            log.info("Kafka listener {} started", LISTENER_ID);
+        }
+    }
+
+    private void setEurekaStatus(InstanceInfo.InstanceStatus status) {
+        eurekaInfoManager.ifAvailable(manager -> manager.setInstanceStatus(status));
+    }
+}
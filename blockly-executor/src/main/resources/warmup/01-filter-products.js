@@ -0,0 +1,7 @@
+// Фильтрация по категории и подсчет суммы
+var items = DB.table('products').where({category: category});
+var total = 0;
+for (var i = 0; i < items.length; i++) {
+    total += Number(items[i].price);
+}
+({category: category, count: items.length, total: total});
@@ -0,0 +1,14 @@
+// Группировка всех строк таблицы
+var rows = DB.table('products').findAll();
+var groups = {};
+for (var i = 0; i < rows.length; i++) {
+    var row = rows[i];
+    var key = row.category || 'none';
+    if (!groups[key]) {
+        groups[key] = {count: 0, max: 0, names: []};
+    }
+    groups[key].count++;
+    groups[key].max = Math.max(groups[key].max, Number(row.price));
+    groups[key].names.push(String(row.name).toUpperCase());
+}
+groups;
@@ -0,0 +1,11 @@
+// Поиск по id, findOne, count и произвольный SELECT
+var products = DB.table('products');
+var first = products.findById(1);
+var chair = products.findOne({name: 'Office Chair'});
+var cheap = DB.query('SELECT id, name, price FROM tenant_warmup.products WHERE price < ? ORDER BY price LIMIT ?', 100, limit);
+({
+    first: first ? first.name : null,
+    chair: chair ? Number(chair.price) : null,
+    cheap: cheap.length,
+    total: products.count()
+});
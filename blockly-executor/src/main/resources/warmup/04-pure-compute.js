@@ -0,0 +1,9 @@
+// Вычисления без БД: строки, массивы, JSON
+var result = [];
+for (var i = 0; i < limit * 20; i++) {
+    var item = {id: i, label: 'item-' + i, tags: ['a', 'b', String(i % 7)]};
+    result.push(JSON.parse(JSON.stringify(item)));
+}
+result.filter(function (x) { return x.id % 3 === 0; })
+      .map(function (x) { return x.label + ':' + x.tags.join(','); })
+      .slice(0, limit);
@@ -0,0 +1,9 @@
+// Параллельные запросы через Promise.all
+var products = DB.table('products');
+Promise.all([
+    products.whereAsync({category: category}),
+    products.countAsync(),
+    DB.queryAsync('SELECT category, COUNT(*) AS cnt FROM tenant_warmup.products GROUP BY category')
+]).then(function (results) {
+    return {matched: results[0].length, total: results[1], groups: results[2].length};
+});
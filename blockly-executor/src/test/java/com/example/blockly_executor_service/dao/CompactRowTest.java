@@ -0,0 +1,45 @@
+package com.example.blockly_executor_service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRowTest {
+
+    private final CompactRow.Columns columns = new CompactRow.Columns("id", "name", "price");
+
+    @Test
+    void behavesLikeCaseInsensitiveMap() {
+        CompactRow row = new CompactRow(columns, new Object[]{1L, "Laptop", null});
+
+        assertEquals("Laptop", row.get("NAME"));
+        assertTrue(row.containsKey("price"));
+        assertNull(row.get("price"));
+        assertFalse(row.containsKey("missing"));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("id", 1L);
+        expected.put("name", "Laptop");
+        expected.put("price", null);
+        assertEquals(expected, row);
+    }
+
+    @Test
+    void supportsPutAndRemove() {
+        CompactRow row = new CompactRow(columns, new Object[]{1L, "Laptop", 10.0});
+
+        assertEquals(1L, row.remove("id"));
+        row.put("price", 12.5);
+        row.put("discount", 0.1);
+
+        assertFalse(row.containsKey("id"));
+        assertEquals(3, row.size());
+        assertEquals("[name, price, discount]", row.keySet().toString());
+        assertEquals(12.5, row.getMember("price"));
+        assertTrue(row.removeMember("discount"));
+        assertFalse(row.removeMember("discount"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.blockly_executor_service.dao;
+
+import com.example.blockly_executor_service.service.engine.ScriptResultCache;
+import com.example.blockly_executor_service.service.profiling.ExecutionProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseAccessorTest {
+
+    private final ScriptResultCache resultCache = new ScriptResultCache(new SimpleMeterRegistry(), true, 100, 300);
+
+    @Test
+    void tableNamesAreCaseInsensitive() {
+        DatabaseAccessor db = new DatabaseAccessor("t1", null, null, resultCache, null, null,
+                ReadRoute.primary(null), ExecutionProfile.DISABLED, DaoSettings.DEFAULTS);
+
+        assertSame(db.table("Products"), db.table("products"));
+        assertEquals(Set.of("products"), db.tablesRead());
+
+        // Запись в "products" инвалидирует результат, прочитанный через "Products"
+        ScriptResultCache.Key key = resultCache.key("t1", "hash", Map.of());
+        resultCache.put(key, 42, 60, db.tablesRead(), resultCache.tenantVersion("t1"));
+        resultCache.invalidate("t1", "products");
+        assertNull(resultCache.get(key));
+    }
+}
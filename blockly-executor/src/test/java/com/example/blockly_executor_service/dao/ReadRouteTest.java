@@ -0,0 +1,105 @@
+package com.example.blockly_executor_service.dao;
+
+import com.example.blockly_executor_service.service.engine.ReplicaRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadRouteTest {
+
+    private final StubJdbcTemplate primary = new StubJdbcTemplate("primary");
+    private final StubJdbcTemplate replica = new StubJdbcTemplate("replica");
+    private ReplicaRouter router;
+
+    @AfterEach
+    void shutdown() {
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void readsGoToReplicaUntilFirstWrite() throws Exception {
+        ReadRoute route = new ReadRoute(primary, router(1000));
+
+        assertEquals("replica", read(route));
+        route.pin();
+        assertEquals("primary", read(route));
+    }
+
+    @Test
+    void laggingReplicaIsNotUsed() throws Exception {
+        replica.lagMillis = 5000;
+        ReadRoute route = new ReadRoute(primary, router(1000));
+        Thread.sleep(100);
+
+        assertFalse(route.replica());
+        assertEquals("primary", read(route));
+    }
+
+    @Test
+    void failedReplicaReadFallsBackToPrimary() throws Exception {
+        ReadRoute route = new ReadRoute(primary, router(1000));
+        replica.down = true;
+
+        assertEquals("primary", route.read(true, jdbc -> jdbc.queryForList("SELECT 1").get(0).get("source")));
+        assertFalse(route.replica());
+    }
+
+    @Test
+    void withoutReplicaEverythingReadsPrimary() {
+        ReadRoute route = ReadRoute.primary(primary);
+
+        assertFalse(route.replica());
+        assertEquals("primary", read(route));
+    }
+
+    private ReplicaRouter router(long maxLagMillis) throws InterruptedException {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("replicaJdbcTemplate", replica));
+        router = new ReplicaRouter(new SimpleMeterRegistry(), beans.getBeanProvider(JdbcTemplate.class), maxLagMillis, 10);
+        for (int i = 0; i < 100 && !router.available() && replica.lagMillis <= maxLagMillis; i++) {
+            Thread.sleep(10);
+        }
+        return router;
+    }
+
+    private static Object read(ReadRoute route) {
+        boolean onReplica = route.replica();
+        return route.read(onReplica, jdbc -> jdbc.queryForList("SELECT 1").get(0).get("source"));
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+
+        private final String source;
+        private volatile double lagMillis;
+        private volatile boolean down;
+
+        StubJdbcTemplate(String source) {
+            this.source = source;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            if (down) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            return requiredType.cast(lagMillis);
+        }
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql) {
+            if (down) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            return List.of(Map.of("source", source));
+        }
+    }
+}
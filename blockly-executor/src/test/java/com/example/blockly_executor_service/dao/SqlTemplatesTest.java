@@ -0,0 +1,97 @@
+package com.example.blockly_executor_service.dao;
+
+import com.example.blockly_executor_service.dao.SqlTemplates.Operation;
+import com.example.blockly_executor_service.dao.SqlTemplates.Template;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlTemplatesTest {
+
+    private static final String TABLE = "tenant_t1.products";
+
+    @Test
+    void columnOrderDoesNotChangeSql() {
+        Template ab = SqlTemplates.get(TABLE, Operation.WHERE, List.of("a", "b"));
+        Template ba = SqlTemplates.get(TABLE, Operation.WHERE, List.of("b", "a"));
+
+        assertEquals("SELECT * FROM tenant_t1.products WHERE 1=1 AND a = ? AND b = ? ORDER BY id", ba.sql());
+        assertEquals(ab.sql(), ba.sql());
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("b", 2);
+        values.put("a", 1);
+        assertArrayEquals(new Object[]{1, 2, 7L}, ba.params(values, 7L));
+    }
+
+    @Test
+    void rejectsInvalidColumnNames() {
+        assertThrows(SecurityException.class,
+                () -> SqlTemplates.get(TABLE, Operation.INSERT, Set.of("name; DROP TABLE x")));
+        assertThrows(IllegalArgumentException.class,
+                () -> SqlTemplates.get(TABLE, Operation.UPSERT_MANY, List.of("name"), List.of("sku"), 1));
+    }
+
+    @Test
+    void buildsKeysetPage() {
+        assertEquals("SELECT * FROM tenant_t1.products WHERE 1=1 ORDER BY id LIMIT ?",
+                SqlTemplates.get(TABLE, Operation.PAGE).sql());
+        Template after = SqlTemplates.get(TABLE, Operation.PAGE_AFTER, List.of("category"));
+        assertEquals("SELECT * FROM tenant_t1.products WHERE 1=1 AND category = ? AND id > ? ORDER BY id LIMIT ?",
+                after.sql());
+        assertArrayEquals(new Object[]{"books", 100L, 50}, after.params(Map.of("category", "books"), 100L, 50));
+    }
+
+    @Test
+    void projectsListedColumns() {
+        assertEquals("SELECT id, price FROM tenant_t1.products WHERE id = ?",
+                SqlTemplates.projected(TABLE, Operation.FIND_BY_ID, List.of(), List.of("id", "price")).sql());
+        assertEquals("SELECT * FROM tenant_t1.products ORDER BY id",
+                SqlTemplates.projected(TABLE, Operation.FIND_ALL, List.of(), List.of()).sql());
+        assertThrows(SecurityException.class,
+                () -> SqlTemplates.projected(TABLE, Operation.FIND_ALL, List.of(), List.of("price, (SELECT 1)")));
+    }
+
+    @Test
+    void buildsAggregate() {
+        Aggregation aggregation = Aggregation.parse(Map.of(
+                "sum", List.of("price", "qty"),
+                "groupBy", "category",
+                "where", Map.of("in_stock", true)));
+        Template template = SqlTemplates.aggregate(TABLE, aggregation.where().keySet(),
+                aggregation.functions(), aggregation.groupBy());
+
+        assertEquals("SELECT category, SUM(price) AS sum_price, SUM(qty) AS sum_qty FROM tenant_t1.products "
+                + "WHERE 1=1 AND in_stock = ? GROUP BY category ORDER BY category", template.sql());
+        assertArrayEquals(new Object[]{true}, template.params(aggregation.where()));
+
+        assertEquals("SELECT COUNT(*) AS count FROM tenant_t1.products WHERE 1=1",
+                SqlTemplates.aggregate(TABLE, List.of(), List.of("count:*"), List.of()).sql());
+        assertThrows(SecurityException.class,
+                () -> SqlTemplates.aggregate(TABLE, List.of(), List.of("sum:*"), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> Aggregation.parse(Map.of("median", "price")));
+        assertThrows(IllegalArgumentException.class, () -> Aggregation.parse(Map.of("where", Map.of())));
+    }
+
+    @Test
+    void buildsMultiRowInsertAndUpsert() {
+        Template insert = SqlTemplates.get(TABLE, Operation.INSERT_MANY_RETURNING_ID, List.of("sku", "name"), List.of(), 2);
+        assertEquals("INSERT INTO tenant_t1.products (name, sku) VALUES (?, ?), (?, ?) RETURNING id", insert.sql());
+        assertArrayEquals(new Object[]{"A", "1", "B", "2"},
+                insert.params(List.of(Map.of("sku", "1", "name", "A"), Map.of("sku", "2", "name", "B"))));
+
+        assertEquals("INSERT INTO tenant_t1.products (name, sku) VALUES (?, ?) ON CONFLICT (sku) "
+                        + "DO UPDATE SET name = EXCLUDED.name, updated_at = CURRENT_TIMESTAMP",
+                SqlTemplates.get(TABLE, Operation.UPSERT_MANY, List.of("sku", "name"), List.of("sku"), 1).sql());
+        assertEquals("INSERT INTO tenant_t1.products (sku) VALUES (?) ON CONFLICT (sku) DO NOTHING",
+                SqlTemplates.get(TABLE, Operation.UPSERT_MANY, List.of("sku"), List.of("sku"), 1).sql());
+        assertEquals("INSERT INTO tenant_t1.products (sku) VALUES (?) ON CONFLICT (sku) "
+                        + "DO UPDATE SET sku = EXCLUDED.sku RETURNING id",
+                SqlTemplates.get(TABLE, Operation.UPSERT_MANY_RETURNING_ID, List.of("sku"), List.of("sku"), 1).sql());
+    }
+}
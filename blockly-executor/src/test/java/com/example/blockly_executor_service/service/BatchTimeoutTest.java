@@ -0,0 +1,69 @@
+package com.example.blockly_executor_service.service;
+
+import com.example.blockly_executor_service.service.engine.ScriptCancellation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTimeoutTest {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final List<String> kills = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdownNow();
+    }
+
+    @Test
+    void hangingFirstItemIsCancelledWithinOneTimeout() throws Exception {
+        ScriptCancellation cancellation = new ScriptCancellation();
+        AtomicLong itemStartedAt = new AtomicLong(System.nanoTime());
+        long start = System.nanoTime();
+        Future<String> future = worker.submit(() -> {
+            itemStartedAt.set(System.nanoTime());
+            // Первый элемент висит, пока пакет не отменят
+            while (!cancellation.isCancelled()) {
+                Thread.sleep(5);
+            }
+            return "cancelled";
+        });
+
+        assertEquals("cancelled", JavaScriptExecutorService.awaitBatch(
+                future, cancellation, itemStartedAt, TIMEOUT_NANOS, null, kills::add));
+
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed < TIMEOUT_NANOS * 3 / 2, "cancelled after " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+        assertEquals(List.of("timeout"), kills);
+    }
+
+    @Test
+    void itemsWithinTimeoutAreNotCancelled() throws Exception {
+        ScriptCancellation cancellation = new ScriptCancellation();
+        AtomicLong itemStartedAt = new AtomicLong(System.nanoTime());
+        Future<Integer> future = worker.submit(() -> {
+            // Пакет в целом дольше таймаута, каждый элемент — короче
+            for (int i = 0; i < 3; i++) {
+                itemStartedAt.set(System.nanoTime());
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(TIMEOUT_NANOS) * 2 / 3);
+            }
+            return 3;
+        });
+
+        assertEquals(3, JavaScriptExecutorService.awaitBatch(
+                future, cancellation, itemStartedAt, TIMEOUT_NANOS, null, kills::add));
+        assertFalse(cancellation.isCancelled());
+        assertTrue(kills.isEmpty());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.blockly_executor_service.service;
+
+import com.example.blockly_executor_service.service.ScriptRuntimeHistory.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptRuntimeHistoryTest {
+
+    private final ScriptRuntimeHistory history = new ScriptRuntimeHistory(new SimpleMeterRegistry(), 1000, 0.9, 0.2, 2);
+
+    @Test
+    void unknownScriptGoesToFastLane() {
+        assertEquals(Lane.FAST, history.classify("unknown"));
+    }
+
+    @Test
+    void slowScriptMovesToSlowLaneAndBack() {
+        history.record("report", TimeUnit.SECONDS.toNanos(3));
+        assertEquals(Lane.SLOW, history.classify("report"));
+
+        // EWMA и затухающая гистограмма возвращают ускорившийся скрипт в быструю полосу
+        for (int i = 0; i < 300; i++) {
+            history.record("report", TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(Lane.FAST, history.classify("report"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedScript() {
+        history.record("a", TimeUnit.SECONDS.toNanos(3));
+        history.record("b", 1);
+        history.record("c", 1);
+
+        assertEquals(2, history.size());
+        assertEquals(Lane.FAST, history.classify("a"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.blockly_executor_service.service.engine;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.graalvm.polyglot.Engine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextPoolTest {
+
+    private Engine engine;
+    private SimpleMeterRegistry meterRegistry;
+    private ContextPool pool;
+
+    @BeforeEach
+    void setUp() {
+        engine = Engine.newBuilder("js").option("engine.WarnInterpreterOnly", "false").build();
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new ContextPool(engine, meterRegistry, new TenantBudgetProperties(), true, 2, 1, 100, 1000, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        engine.close();
+    }
+
+    @Test
+    void reusesContextForSameTenantAndClearsGlobals() throws Exception {
+        PooledContext first = pool.acquire("appliner");
+        first.getContext().eval("js", "var counter = 41; leaked = 'x';");
+        pool.release(first, true);
+
+        PooledContext second = pool.acquire("appliner");
+        assertSame(first, second);
+        assertEquals("undefined", second.getContext().eval("js", "typeof counter").asString());
+        assertEquals("undefined", second.getContext().eval("js", "typeof leaked").asString());
+        pool.release(second, true);
+
+        assertEquals(2.0, meterRegistry.get("blockly.context.pool.acquire").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void doesNotShareContextBetweenTenants() throws Exception {
+        PooledContext appliner = pool.acquire("appliner");
+        appliner.getContext().eval("js", "let secret = 42;");
+        pool.release(appliner, true);
+
+        PooledContext google = pool.acquire("google");
+        assertNotSame(appliner, google);
+        assertEquals("undefined", google.getContext().eval("js", "typeof secret").asString());
+        pool.release(google, true);
+
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void discardsContextThatIsNotReusable() throws Exception {
+        PooledContext pooled = pool.acquire("appliner");
+        pool.release(pooled, false);
+
+        assertEquals(0, pool.size());
+        assertNotSame(pooled, pool.acquire("appliner"));
+    }
+
+    @Test
+    void evictsIdleContextOfAnotherTenantWhenFull() throws Exception {
+        PooledContext appliner = pool.acquire("appliner");
+        PooledContext google = pool.acquire("google");
+        pool.release(google, true);
+
+        PooledContext other = pool.acquire("other");
+        assertNotSame(google, other);
+        assertEquals(2, pool.size());
+        // Вытесненный Context закрыт
+        assertThrows(IllegalStateException.class, () -> google.getContext().eval("js", "1"));
+
+        pool.release(appliner, true);
+        pool.release(other, true);
+    }
+
+    @Test
+    void contextWithModifiedBuiltinsIsNotReused() throws Exception {
+        PooledContext first = pool.acquire("appliner");
+        first.getContext().eval("js", "Array.prototype.x = 1;"
+                + " Object.prototype.toString = function () { return 'pwned'; };"
+                + " JSON.parse = function () { return 42; };");
+        pool.release(first, true);
+
+        PooledContext second = pool.acquire("appliner");
+        assertNotSame(first, second);
+        assertEquals("undefined", second.getContext().eval("js", "typeof [].x").asString());
+        assertEquals("[object Object]", second.getContext().eval("js", "({}).toString()").asString());
+        assertEquals(1, second.getContext().eval("js", "JSON.parse('{\"a\":1}').a").asInt());
+        pool.release(second, true);
+
+        assertEquals(1.0, meterRegistry.get("blockly.context.pool.intrinsics.modified").counter().count());
+    }
+
+    @Test
+    void ordinaryScriptKeepsContextReusable() throws Exception {
+        PooledContext first = pool.acquire("appliner");
+        first.getContext().eval("js", "var rows = [1, 2, 3].map(x => x * 2); function total() { return rows.length; }"
+                + " JSON.stringify({a: new Map([[1, 2]]).size}); total();");
+        pool.release(first, true);
+
+        assertSame(first, pool.acquire("appliner"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.blockly_executor_service.service.engine;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.HostAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParamProxiesTest {
+
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        context = Context.newBuilder("js")
+                .option("engine.WarnInterpreterOnly", "false")
+                .allowHostAccess(HostAccess.ALL)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void exposesNestedMapsAndListsAsJsObjectsAndArrays() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("name", "Laptop");
+        row.put("price", 999.5);
+        context.getBindings("js").putMember("rows", ParamProxies.wrap(new ArrayList<>(List.of(row, row))));
+
+        Object result = ValueConverter.toJava(context.eval("js",
+                "[rows.length, rows[1].name, rows.reduce((sum, r) => sum + r.price, 0), Object.keys(rows[0]).join(','), JSON.stringify(rows[0])]"));
+
+        assertEquals(List.of(2, "Laptop", 1999, "name,price", "{\"name\":\"Laptop\",\"price\":999.5}"), result);
+    }
+
+    @Test
+    void writesFromScriptGoToOriginalCollections() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("items", new ArrayList<>(List.of(1)));
+        context.getBindings("js").putMember("params", ParamProxies.wrap(params));
+
+        context.eval("js", "params.items.push({id: 2}); params.total = 3; delete params.missing;");
+
+        assertEquals(List.of(1, Map.of("id", 2)), params.get("items"));
+        assertEquals(3, params.get("total"));
+    }
+
+    @Test
+    void returnsOriginalCollectionWhenScriptReturnsParameterUnchanged() {
+        List<Object> rows = new ArrayList<>(List.of("a", "b"));
+        context.getBindings("js").putMember("rows", ParamProxies.wrap(rows));
+
+        assertSame(rows, ValueConverter.toJava(context.eval("js", "rows")));
+    }
+}
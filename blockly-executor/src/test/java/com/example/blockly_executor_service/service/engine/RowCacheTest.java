@@ -0,0 +1,92 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RowCache cache = new RowCache(registry, true, Set.of("products", "t2.orders"), 100, 60);
+
+    @Test
+    void cachesOnlyOptedInTables() {
+        assertTrue(cache.isCached("t1", "products"));
+        assertTrue(cache.isCached("t2", "orders"));
+        assertFalse(cache.isCached("t1", "orders"));
+        assertFalse(new RowCache(registry, false, Set.of("products"), 100, 60).isCached("t1", "products"));
+    }
+
+    @Test
+    void tableNamesAreCaseInsensitive() {
+        RowCache mixed = new RowCache(registry, true, Set.of("Products", "T2.Orders"), 100, 60);
+        assertTrue(mixed.isCached("t1", "products"));
+        assertTrue(mixed.isCached("t2", "ORDERS"));
+
+        cache.putById("t1", "Products", 7L, Map.of("id", 7L), cache.version("t1", "products"));
+        assertNotNull(cache.getById("t1", "products", 7));
+
+        cache.refreshRow("t1", "PRODUCTS", 7L, null);
+        assertNull(cache.getById("t1", "Products", 7));
+    }
+
+    @Test
+    void idFromJsAndFromDatabaseIsSameKey() {
+        cache.putById("t1", "products", 7L, Map.of("id", 7L), cache.version("t1", "products"));
+
+        assertNotNull(cache.getById("t1", "products", 7));
+        assertNotNull(cache.getById("t1", "products", 7.0));
+        assertNull(cache.getById("t2", "products", 7));
+        assertEquals(2.0, registry.get("blockly.row.cache.requests")
+                .tags("tenant", "t1", "table", "products", "result", "hit").counter().count());
+    }
+
+    @Test
+    void stringAndNumberIdsAreSameKey() {
+        cache.putById("t1", "products", "42", Map.of("id", 42L), cache.version("t1", "products"));
+
+        assertNotNull(cache.getById("t1", "products", 42));
+        assertNotNull(cache.getById("t1", "products", 42.0));
+        assertNotNull(cache.getById("t1", "products", new BigDecimal("42.00")));
+
+        cache.putOne("t1", "products", Map.of("category_id", 5), Map.of("id", 1L), cache.version("t1", "products"));
+        assertNotNull(cache.getOne("t1", "products", Map.of("category_id", "5")));
+
+        // Неканоническая запись числа остается строкой: "042" в текстовой колонке не равно "42"
+        assertNull(cache.getById("t1", "products", "042"));
+        assertEquals("042", RowCache.normalize("042"));
+        assertEquals("abc", RowCache.normalize("abc"));
+    }
+
+    @Test
+    void writesRefreshOrInvalidateEntries() {
+        long version = cache.version("t1", "products");
+        cache.putById("t1", "products", 1, Map.of("id", 1, "price", 10), version);
+        cache.putOne("t1", "products", Map.of("sku", "A"), Map.of("id", 1, "price", 10), version);
+
+        // Вставка не меняет строки по id, но меняет результат findOne
+        cache.invalidate("t1", "products");
+        assertNotNull(cache.getById("t1", "products", 1));
+        assertNull(cache.getOne("t1", "products", Map.of("sku", "A")));
+
+        cache.refreshRow("t1", "products", 1, Map.of("id", 1, "price", 12));
+        assertEquals(12, cache.getById("t1", "products", 1).get("price"));
+
+        cache.refreshRow("t1", "products", 1, null);
+        assertNull(cache.getById("t1", "products", 1));
+    }
+
+    @Test
+    void skipsRowReadBeforeConcurrentWrite() {
+        long version = cache.version("t1", "products");
+        cache.invalidateRows("t1", "products");
+        cache.putById("t1", "products", 1, Map.of("id", 1), version);
+
+        assertNull(cache.getById("t1", "products", 1));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.blockly_executor_service.service.engine;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptCancellationTest {
+
+    private Engine engine;
+    private ContextPool pool;
+
+    @BeforeEach
+    void setUp() {
+        engine = Engine.newBuilder("js").option("engine.WarnInterpreterOnly", "false").build();
+        pool = new ContextPool(engine, new SimpleMeterRegistry(), new TenantBudgetProperties(), true, 2, 0, 100, 1000, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        engine.close();
+    }
+
+    @Test
+    void cancelDoesNotWaitForHostCall() throws Exception {
+        PooledContext pooled = pool.acquire("appliner");
+        Blocker blocker = new Blocker();
+        pooled.bindings().putMember("host", blocker);
+        ScriptCancellation cancellation = new ScriptCancellation();
+        cancellation.attach(pooled);
+
+        CompletableFuture<Object> worker = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pooled.getContext().eval("js", "host.block(); while (true) {}");
+            } finally {
+                cancellation.detach();
+            }
+        });
+        assertTrue(blocker.entered.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        cancellation.cancel();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertTrue(cancellation.isCancelled());
+
+        // Хост-вызов завершился — движок прерывает скрипт
+        blocker.release.countDown();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> worker.get(5, TimeUnit.SECONDS));
+        assertTrue(((PolyglotException) e.getCause()).isCancelled());
+        pool.release(pooled, false);
+    }
+
+    public static class Blocker {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        public void block() throws InterruptedException {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
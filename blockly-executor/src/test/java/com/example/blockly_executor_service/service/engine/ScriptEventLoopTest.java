@@ -0,0 +1,95 @@
+package com.example.blockly_executor_service.service.engine;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.HostAccess;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptEventLoopTest {
+
+    private ExecutorService ioExecutor;
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        ioExecutor = Executors.newFixedThreadPool(4);
+        context = Context.newBuilder("js")
+                .option("engine.WarnInterpreterOnly", "false")
+                .allowHostAccess(HostAccess.ALL)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+        ioExecutor.shutdownNow();
+    }
+
+    @Test
+    void runsIndependentQueriesInParallel() throws Exception {
+        ScriptEventLoop eventLoop = new ScriptEventLoop(ioExecutor, 4);
+        context.getBindings("js").putMember("DB", new SlowDb(eventLoop));
+
+        long start = System.nanoTime();
+        Object result = ValueConverter.toJava(eventLoop.settle(context.eval("js",
+                "Promise.all([DB.fetch(1), DB.fetch(2), DB.fetch(3)]).then(r => r[0] + r[1] + r[2])")));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(6, result);
+        assertTrue(elapsedMillis < 2 * SlowDb.LATENCY_MILLIS, "queries did not overlap: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void limitsConcurrentQueriesPerScript() throws Exception {
+        ScriptEventLoop eventLoop = new ScriptEventLoop(ioExecutor, 1);
+        context.getBindings("js").putMember("DB", new SlowDb(eventLoop));
+
+        long start = System.nanoTime();
+        eventLoop.settle(context.eval("js", "Promise.all([DB.fetch(1), DB.fetch(2)])"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 2 * SlowDb.LATENCY_MILLIS, "queries overlapped: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void rejectsPromiseWhenQueryFails() throws Exception {
+        ScriptEventLoop eventLoop = new ScriptEventLoop(ioExecutor, 4);
+        context.getBindings("js").putMember("DB", new SlowDb(eventLoop));
+
+        assertEquals("caught: boom", ValueConverter.toJava(eventLoop.settle(
+                context.eval("js", "DB.fail().catch(e => 'caught: ' + e.message)"))));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> eventLoop.settle(context.eval("js", "DB.fail()")));
+        assertTrue(e.getMessage().contains("boom"));
+    }
+
+    public static class SlowDb {
+
+        static final long LATENCY_MILLIS = 200;
+
+        private final ScriptEventLoop eventLoop;
+
+        SlowDb(ScriptEventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        public Object fetch(int value) {
+            return eventLoop.promise(() -> {
+                Thread.sleep(LATENCY_MILLIS);
+                return value;
+            });
+        }
+
+        public Object fail() {
+            return eventLoop.promise(() -> {
+                throw new IllegalArgumentException("boom");
+            });
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptResultCacheTest {
+
+    private final ScriptResultCache cache = new ScriptResultCache(new SimpleMeterRegistry(), true, 100, 300);
+
+    @Test
+    void keyIgnoresParameterOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", List.of("x"));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", List.of("x"));
+        second.put("a", 1);
+
+        assertEquals(cache.key("t1", "hash", first), cache.key("t1", "hash", second));
+        assertNotEquals(cache.key("t1", "hash", first), cache.key("t2", "hash", first));
+    }
+
+    @Test
+    void writeToReadTableInvalidatesEntry() {
+        ScriptResultCache.Key key = cache.key("t1", "hash", Map.of());
+        cache.put(key, 42, 60, Set.of("products"), cache.tenantVersion("t1"));
+        assertEquals(42, cache.get(key).result());
+
+        cache.invalidate("t1", "orders");
+        assertNotNull(cache.get(key));
+
+        cache.invalidate("t2", "products");
+        assertNotNull(cache.get(key));
+
+        cache.invalidate("t1", "products");
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void skipsResultWhenTenantWroteDuringExecution() {
+        ScriptResultCache.Key key = cache.key("t1", "hash", Map.of());
+        long version = cache.tenantVersion("t1");
+
+        cache.invalidate("t1", "orders");
+        cache.put(key, 42, 60, Set.of(ScriptResultCache.ALL_TABLES), version);
+
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void ttlComesFromRequestThenAnnotationAndIsCapped() {
+        assertEquals(0, cache.effectiveTtlSeconds(null, null));
+        assertEquals(30, cache.effectiveTtlSeconds(null, 30));
+        assertEquals(0, cache.effectiveTtlSeconds(0, 30));
+        assertEquals(300, cache.effectiveTtlSeconds(3600, null));
+        assertEquals(15, ScriptSourceCache.cacheTtlSeconds("// @cache ttl=15\nDB.table('a').findAll();"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptSourceCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsSameSourceForSameScript() {
+        ScriptSourceCache cache = new ScriptSourceCache(meterRegistry, 10, 1_000);
+
+        CachedScript first = cache.get("1 + 2");
+        CachedScript second = cache.get("1 + 2");
+
+        assertSame(first.source(), second.source());
+        assertEquals(ScriptSourceCache.hash("1 + 2"), first.hash());
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedScript() {
+        ScriptSourceCache cache = new ScriptSourceCache(meterRegistry, 2, 1_000);
+
+        CachedScript a = cache.get("'a'");
+        cache.get("'b'");
+        cache.get("'a'");
+        cache.get("'c'");
+
+        assertEquals(2, cache.size());
+        assertSame(a.source(), cache.get("'a'").source());
+        assertEquals(1.0, meterRegistry.get("blockly.script.cache.evictions").counter().count());
+    }
+
+    @Test
+    void evictsWhenTotalSizeExceeded() {
+        ScriptSourceCache cache = new ScriptSourceCache(meterRegistry, 10, 10);
+
+        cache.get("var a = 1;");
+        cache.get("var b = 2;");
+
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.blockly_executor_service.service.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final String SQL = "SELECT * FROM tenant_t1.products WHERE id = ?";
+
+    private final SingleFlight singleFlight = new SingleFlight(new SimpleMeterRegistry(), true);
+
+    @Test
+    void concurrentIdenticalReadsShareOneQuery() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> singleFlight.run("t1", SQL, new Object[]{1L}, () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return List.of("row");
+                }, ArrayList::new)));
+            }
+            while (executions.get() == 0) {
+                Thread.onSpinWait();
+            }
+            // Остальные потоки успевают присоединиться к запросу, пока он не завершен
+            Thread.sleep(100);
+            release.countDown();
+
+            List<List<String>> rows = new ArrayList<>();
+            for (Future<List<String>> result : results) {
+                rows.add(result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(List.of("row"), rows.get(0));
+            assertNotSame(rows.get(0), rows.get(1));
+            assertEquals(0, singleFlight.inFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void readAfterWriteDoesNotJoinEarlierQuery() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> before = pool.submit(() -> singleFlight.run("t1", SQL, new Object[]{1L}, () -> {
+                started.countDown();
+                await(release);
+                return executions.incrementAndGet();
+            }, v -> v));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            singleFlight.onWrite("t1");
+            int after = singleFlight.run("t1", SQL, new Object[]{1L}, executions::incrementAndGet, v -> v);
+            release.countDown();
+
+            assertEquals(1, after);
+            assertEquals(2, before.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void followersRetryWhenLeaderFails() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> leader = pool.submit(() -> singleFlight.run("t1", SQL, new Object[]{2L}, () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("cancelled");
+            }, v -> v));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Инициатор падает, когда этот поток уже ждет его результат
+            new Thread(() -> {
+                sleep(100);
+                release.countDown();
+            }).start();
+            String result = singleFlight.run("t1", SQL, new Object[]{2L}, () -> "own", v -> v);
+
+            assertEquals("own", result);
+            assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void followerWaitsNoLongerThanItsQueryTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = pool.submit(() -> singleFlight.run("t1", SQL, new Object[]{3L}, () -> {
+                started.countDown();
+                await(release);
+                return "shared";
+            }, v -> v));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Инициатор висит дольше, чем ожидающему осталось до срока
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(200);
+            long start = System.nanoTime();
+            assertThrows(QueryTimeoutException.class, () -> singleFlight.run("t1", false, waitNanos, SQL,
+                    new Object[]{3L}, () -> "own", v -> v));
+            long elapsed = System.nanoTime() - start;
+            assertTrue(elapsed < waitNanos * 3, "waited " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+
+            release.countDown();
+            assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+            assertEquals(0, singleFlight.inFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
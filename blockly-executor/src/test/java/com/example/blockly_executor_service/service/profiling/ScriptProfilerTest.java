@@ -0,0 +1,61 @@
+package com.example.blockly_executor_service.service.profiling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptProfilerTest {
+
+    private final ScriptProfiler profiler = new ScriptProfiler(new SimpleMeterRegistry(), true, 0.0, 10);
+
+    @Test
+    void profilesOnlyRequestedExecutionsAtZeroSampleRate() {
+        assertFalse(profiler.start(false).isEnabled());
+        assertTrue(profiler.start(true).isEnabled());
+        assertFalse(new ScriptProfiler(new SimpleMeterRegistry(), false, 1.0, 10).start(true).isEnabled());
+    }
+
+    @Test
+    void syncDbTimeIsSubtractedFromJs() {
+        ExecutionProfile profile = profiler.start(true);
+        profile.scriptThread();
+        profile.db("products", "where", () -> sleep(20));
+        profile.db("products", "where", () -> sleep(0));
+        profile.eval(TimeUnit.MILLISECONDS.toNanos(50), -1);
+
+        assertTrue(profile.dbMillis() >= 20);
+        assertTrue(profile.jsMillis() <= 30);
+        assertEquals(2L, profile.dbBreakdown().get("products.where").get("calls"));
+    }
+
+    @Test
+    void aggregatesByScriptHash() {
+        for (int i = 0; i < 3; i++) {
+            ExecutionProfile profile = profiler.start(true);
+            profile.queueWait(TimeUnit.MILLISECONDS.toNanos(10));
+            profile.db("orders", "findById", () -> 1);
+            profiler.record("abc", profile);
+        }
+        profiler.record("skipped", ExecutionProfile.DISABLED);
+
+        List<Map<String, Object>> top = profiler.top(10);
+        assertEquals(1, top.size());
+        assertEquals(3L, top.get(0).get("executions"));
+        assertEquals(30L, top.get(0).get("queueWaitMs"));
+        assertTrue(((Map<?, ?>) top.get(0).get("db")).containsKey("orders.findById"));
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.blockly_executor_service.service.tenant;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantConnectionGovernorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tenantCannotExceedMaxConnections() throws Exception {
+        TenantConnectionGovernor governor = governor(new TenantBudgetProperties(), 10);
+        DataSource dataSource = governor.jdbcTemplate("t1").getDataSource();
+
+        Connection first = dataSource.getConnection();
+        for (int i = 1; i < 6; i++) {
+            dataSource.getConnection();
+        }
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        // Другой тенант получает соединение без ожидания
+        governor.jdbcTemplate("t2").getDataSource().getConnection().close();
+
+        // Повторное закрытие не возвращает долю дважды
+        first.close();
+        first.close();
+        dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(6.0, meterRegistry.get("blockly.tenant.connections.active").tag("tenant", "t1").gauge().value());
+        assertEquals(2.0, meterRegistry.get("blockly.tenant.connection.timeouts").tag("tenant", "t1").counter().count());
+    }
+
+    @Test
+    void reservedConnectionsStayAvailableWhenSharedPartIsExhausted() throws Exception {
+        TenantBudgetProperties properties = new TenantBudgetProperties();
+        TenantBudgetProperties.Budget vip = new TenantBudgetProperties.Budget();
+        vip.setMinConnections(2);
+        properties.getOverrides().put("vip", vip);
+        TenantConnectionGovernor governor = governor(properties, 4);
+
+        DataSource noisy = governor.jdbcTemplate("noisy").getDataSource();
+        noisy.getConnection();
+        noisy.getConnection();
+        assertThrows(SQLTransientConnectionException.class, noisy::getConnection);
+
+        DataSource reserved = governor.jdbcTemplate("vip").getDataSource();
+        reserved.getConnection();
+        reserved.getConnection();
+        assertThrows(SQLTransientConnectionException.class, reserved::getConnection);
+    }
+
+    @Test
+    void reservationMustLeaveSharedPart() {
+        TenantBudgetProperties properties = new TenantBudgetProperties();
+        TenantBudgetProperties.Budget vip = new TenantBudgetProperties.Budget();
+        vip.setMinConnections(4);
+        properties.getOverrides().put("vip", vip);
+
+        assertThrows(IllegalStateException.class, () -> governor(properties, 4));
+    }
+
+    private TenantConnectionGovernor governor(TenantBudgetProperties properties, int poolSize) {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    return "getConnection".equals(method.getName()) ? connection() : null;
+                });
+        return new TenantConnectionGovernor(dataSource, properties, meterRegistry, poolSize, 50);
+    }
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> null);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.blockly_executor_service.service.tenant;
+
+import com.example.blockly_executor_service.config.TenantBudgetProperties;
+import com.example.blockly_executor_service.exception.TenantThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantPermitTest {
+
+    private final TenantResourceGovernor governor = governor();
+
+    @Test
+    void slotIsHeldUntilHandedOffTaskFinishes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        TenantPermit permit = governor.admit("t1");
+        Callable<Integer> task = permit.handOff(() -> {
+            started.countDown();
+            finish.await();
+            return 1;
+        });
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> future = worker.submit(task);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Вызывающий поток перестал ждать, но скрипт еще выполняется
+            permit.close();
+            assertThrows(TenantThrottledException.class, () -> governor.admit("t1"));
+
+            finish.countDown();
+            assertEquals(1, future.get(5, TimeUnit.SECONDS));
+            governor.admit("t1").close();
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeBeforeStartReleasesSlotAndSkipsTask() {
+        AtomicBoolean ran = new AtomicBoolean();
+        TenantPermit permit = governor.admit("t1");
+        Callable<Integer> task = permit.handOff(() -> {
+            ran.set(true);
+            return 1;
+        });
+
+        permit.close();
+        governor.admit("t1").close();
+
+        assertThrows(CancellationException.class, task::call);
+        assertFalse(ran.get());
+    }
+
+    private static TenantResourceGovernor governor() {
+        TenantBudgetProperties properties = new TenantBudgetProperties();
+        TenantBudgetProperties.Budget budget = new TenantBudgetProperties.Budget();
+        budget.setMaxConcurrentScripts(1);
+        properties.getOverrides().put("t1", budget);
+        return new TenantResourceGovernor(properties, new SimpleMeterRegistry());
+    }
+}
@@ -18,4 +18,8 @@ public final class ExceptionMessages {
     public static final String INVALID_ARGUMENT = "Invalid argument: %s";
 
     public static final String REQUEST_TIMEOUT = "Request timeout %s %s";
+
+    public static final String SCRIPT_REJECTED = "Script executor is overloaded (%d queued), try again later";
+
+    public static final String TENANT_THROTTLED = "Tenant '%s' exceeded its %s budget, try again later";
 }
@@ -18,6 +18,19 @@ public class ProcedureMapper {
             String userId,
             String organizationId
     ) {
+        return toPayload(dto, replyTo, userId, organizationId, null);
+    }
+
+    /**
+     * @param timeoutMillis сколько отправитель ждет ответ с момента отправки, или null
+     */
+    public <T> ProcedurePayload<T> toPayload(
+            ProcedureRequestDto<T> dto,
+            String replyTo,
+            String userId,
+            String organizationId,
+            Long timeoutMillis
+    ) {
 
         String tenantId = (organizationId != null && !organizationId.isEmpty())
                 ? organizationId
@@ -26,6 +39,8 @@ public class ProcedureMapper {
                 .userId(userId)
                 .tenantId(tenantId)
                 .headers(new java.util.HashMap<>())
+                .timeoutMillis(timeoutMillis)
+                .enqueuedAt(timeoutMillis != null ? System.currentTimeMillis() : null)
                 .build();
 
         return ProcedurePayload.<T>builder()
@@ -1,15 +1,27 @@
 package com.example.common.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Срок ответа — enqueuedAt + timeoutMillis: после него routing уже не ждет результат.
+ * Получатель сравнивает срок со своими часами, поэтому проверка срока корректна только
+ * при синхронизированных (NTP) часах routing и worker'ов: отстающие часы worker'а продлевают
+ * срок, спешащие — отбрасывают запросы, которые еще ждут.
+ *
+ * @param timeoutMillis сколько отправитель ждет ответ с момента отправки; null — без срока
+ * @param enqueuedAt    время отправки (epoch millis) по часам отправителя
+ */
 @Builder
 public record ExecutionMetadata(
         String userId,
         String tenantId,
-        Map<String, String> headers
+        Map<String, String> headers,
+        Long timeoutMillis,
+        Long enqueuedAt
 ) {
     public ExecutionMetadata {
         if (headers == null) {
@@ -17,5 +29,25 @@ public record ExecutionMetadata(
         }
     }
 
+    /**
+     * Срок ответа (epoch millis) или null, если срок не задан.
+     */
+    @JsonIgnore
+    public Long deadline() {
+        return timeoutMillis == null || enqueuedAt == null ? null : enqueuedAt + timeoutMillis;
+    }
+
+    /**
+     * Сколько осталось до deadline, Long.MAX_VALUE — если срок не задан.
+     */
+    @JsonIgnore
+    public long remainingMillis() {
+        Long deadline = deadline();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
 
+    @JsonIgnore
+    public boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
 }
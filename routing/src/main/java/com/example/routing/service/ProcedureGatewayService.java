@@ -41,7 +41,7 @@ public class ProcedureGatewayService {
      * Выполняет процедуру: отправляет в Kafka и синхронно ждет ответ
      */
     public ProcedureResponse<?> executeProcedure(ProcedureRequestDto<?> requestDto, String userId,  String organizationId) {
-        var payload = procedureMapper.toPayload(requestDto, instanceId, userId, organizationId);
+        var payload = procedureMapper.toPayload(requestDto, instanceId, userId, organizationId, timeoutMillis());
 
         var responseFuture = responseStorage.createPendingRequest(payload.requestId());
 
@@ -59,7 +59,7 @@ public class ProcedureGatewayService {
      */
     @Async
     public CompletableFuture<ProcedureResponse<?>> executeProcedureAsync(ProcedureRequestDto<?> requestDto, String userId,String organizationId) {
-        var payload = procedureMapper.toPayload(requestDto, instanceId, userId, organizationId);
+        var payload = procedureMapper.toPayload(requestDto, instanceId, userId, organizationId, timeoutMillis());
 
         var responseFuture = responseStorage.createPendingRequest(payload.requestId());
 
@@ -79,6 +79,14 @@ public class ProcedureGatewayService {
                 });
     }
 
+    /**
+     * Сколько ждем ответ с момента отправки: worker не выполняет запрос, который уже не ждут.
+     * Передается относительным таймаутом со временем отправки, см. ExecutionMetadata
+     */
+    private long timeoutMillis() {
+        return TimeUnit.SECONDS.toMillis(requestTimeoutSeconds);
+    }
+
     /**
      * Отправляет запрос в Kafka
      */
@@ -0,0 +1,48 @@
+package com.example.routing.service;
+
+import com.example.common.mapper.ProcedureMapper;
+import com.example.common.model.ExecutionMetadata;
+import com.example.common.model.ProcedurePayload;
+import com.example.common.model.ProcedureRequestDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProcedureGatewayServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsRelativeTimeoutWithEnqueueTime() {
+        KafkaTemplate<String, ProcedurePayload<?>> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        ClientTypeTopicMapper topicMapper = mock(ClientTypeTopicMapper.class);
+        when(topicMapper.getTopicForClientType("blockly-executor")).thenReturn("blockly-executor-procedures");
+
+        ProcedureGatewayService service = new ProcedureGatewayService(
+                kafkaTemplate, new ResponseStorage(), topicMapper, "routing-1", new ProcedureMapper());
+        service.requestTimeoutSeconds = 30;
+
+        long before = System.currentTimeMillis();
+        service.executeProcedureAsync(new ProcedureRequestDto<>("blockly-executor", Map.of(), "executeBlocklyScript"),
+                "user", "tenant");
+        long after = System.currentTimeMillis();
+
+        ArgumentCaptor<ProcedurePayload<?>> payload = ArgumentCaptor.forClass(ProcedurePayload.class);
+        verify(kafkaTemplate).send(eq("blockly-executor-procedures"), anyString(), payload.capture());
+        ExecutionMetadata metadata = payload.getValue().metadata();
+
+        assertEquals(30_000L, metadata.timeoutMillis());
+        assertTrue(metadata.enqueuedAt() >= before && metadata.enqueuedAt() <= after);
+        assertEquals(metadata.enqueuedAt() + 30_000L, metadata.deadline());
+        assertFalse(metadata.isExpired());
+    }
+}